@@ -0,0 +1,159 @@
+function handler0(event) {
+	return event.target.value + 0;
+}
+
+function handler1(event) {
+	return event.target.value + 1;
+}
+
+function handler2(event) {
+	return event.target.value + 2;
+}
+
+function handler3(event) {
+	return event.target.value + 3;
+}
+
+function handler4(event) {
+	return event.target.value + 4;
+}
+
+function handler5(event) {
+	return event.target.value + 5;
+}
+
+function handler6(event) {
+	return event.target.value + 6;
+}
+
+function handler7(event) {
+	return event.target.value + 7;
+}
+
+function handler8(event) {
+	return event.target.value + 8;
+}
+
+function handler9(event) {
+	return event.target.value + 9;
+}
+
+function handler10(event) {
+	return event.target.value + 10;
+}
+
+function handler11(event) {
+	return event.target.value + 11;
+}
+
+function handler12(event) {
+	return event.target.value + 12;
+}
+
+function handler13(event) {
+	return event.target.value + 13;
+}
+
+function handler14(event) {
+	return event.target.value + 14;
+}
+
+function handler15(event) {
+	return event.target.value + 15;
+}
+
+function handler16(event) {
+	return event.target.value + 16;
+}
+
+function handler17(event) {
+	return event.target.value + 17;
+}
+
+function handler18(event) {
+	return event.target.value + 18;
+}
+
+function handler19(event) {
+	return event.target.value + 19;
+}
+
+function handler20(event) {
+	return event.target.value + 20;
+}
+
+function handler21(event) {
+	return event.target.value + 21;
+}
+
+function handler22(event) {
+	return event.target.value + 22;
+}
+
+function handler23(event) {
+	return event.target.value + 23;
+}
+
+function handler24(event) {
+	return event.target.value + 24;
+}
+
+function handler25(event) {
+	return event.target.value + 25;
+}
+
+function handler26(event) {
+	return event.target.value + 26;
+}
+
+function handler27(event) {
+	return event.target.value + 27;
+}
+
+function handler28(event) {
+	return event.target.value + 28;
+}
+
+function handler29(event) {
+	return event.target.value + 29;
+}
+
+function handler30(event) {
+	return event.target.value + 30;
+}
+
+function handler31(event) {
+	return event.target.value + 31;
+}
+
+function handler32(event) {
+	return event.target.value + 32;
+}
+
+function handler33(event) {
+	return event.target.value + 33;
+}
+
+function handler34(event) {
+	return event.target.value + 34;
+}
+
+function handler35(event) {
+	return event.target.value + 35;
+}
+
+function handler36(event) {
+	return event.target.value + 36;
+}
+
+function handler37(event) {
+	return event.target.value + 37;
+}
+
+function handler38(event) {
+	return event.target.value + 38;
+}
+
+function handler39(event) {
+	return event.target.value + 39;
+}
@@ -18,17 +18,41 @@
 
 package nikoladasm.aspark;
 
+import static nikoladasm.aspark.ASparkUtil.buildPathPattern;
+
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ACLEntry {
+	private static final Pattern EXTENSION_PATH = Pattern.compile("^\\*\\.([A-Za-z0-9_\\-]+)$");
+	
 	private Pattern pathPattern;
 	private boolean allow;
+	private String extension;
 	
 	public ACLEntry(Pattern pathPattern, boolean allow) {
 		this.pathPattern = pathPattern;
 		this.allow = allow;
 	}
 	
+	public ACLEntry(String path, boolean allow) {
+		this(buildPathPattern(path), allow);
+		Matcher matcher = EXTENSION_PATH.matcher(path);
+		if (matcher.matches()) extension = matcher.group(1);
+	}
+	
+	public Pattern pathPattern() {
+		return pathPattern;
+	}
+	
+	public boolean allow() {
+		return allow;
+	}
+	
+	public String extension() {
+		return extension;
+	}
+	
 	public Boolean isAllowed(String path) {
 		return (pathPattern.matcher(path).matches()) ? allow : null;
 	}
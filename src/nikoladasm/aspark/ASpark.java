@@ -42,6 +42,118 @@ public final class ASpark {
 		return SingletonHolder.INSTANCE;
 	}
 	
+	public static void executionMode(ExecutionMode executionMode) {
+		getInstance().executionMode(executionMode);
+	}
+	
+	public static void requestQueue(int maxQueuedRequests) {
+		getInstance().requestQueue(maxQueuedRequests);
+	}
+	
+	public static void requestQueue(int maxQueuedRequests, int retryAfter) {
+		getInstance().requestQueue(maxQueuedRequests, retryAfter);
+	}
+	
+	public static int requestQueueDepth() {
+		return getInstance().requestQueueDepth();
+	}
+	
+	public static long shedRequests() {
+		return getInstance().shedRequests();
+	}
+	
+	public static void bulkhead(String name, int threads, int maxQueuedRequests) {
+		getInstance().bulkhead(name, threads, maxQueuedRequests);
+	}
+	
+	public static void bulkhead(String name, int threads) {
+		getInstance().bulkhead(name, threads);
+	}
+	
+	public static void bulkheadPath(String pathPrefix, String name) {
+		getInstance().bulkheadPath(pathPrefix, name);
+	}
+	
+	public static int requestQueueDepth(String bulkhead) {
+		return getInstance().requestQueueDepth(bulkhead);
+	}
+	
+	public static long shedRequests(String bulkhead) {
+		return getInstance().shedRequests(bulkhead);
+	}
+	
+	public static void adaptiveConcurrency(boolean enabled) {
+		getInstance().adaptiveConcurrency(enabled);
+	}
+	
+	public static void adaptiveConcurrency(int initialLimit, int minLimit, int maxLimit) {
+		getInstance().adaptiveConcurrency(initialLimit, minLimit, maxLimit);
+	}
+	
+	public static int concurrencyLimit() {
+		return getInstance().concurrencyLimit();
+	}
+	
+	public static void nativeTransport(boolean nativeTransport) {
+		getInstance().nativeTransport(nativeTransport);
+	}
+	
+	public static void acceptors(int acceptors) {
+		getInstance().acceptors(acceptors);
+	}
+	
+	public static void bossThreads(int bossThreads) {
+		getInstance().bossThreads(bossThreads);
+	}
+	
+	public static void workerThreads(int workerThreads) {
+		getInstance().workerThreads(workerThreads);
+	}
+	
+	public static void backlog(int backlog) {
+		getInstance().backlog(backlog);
+	}
+	
+	public static void socketBufferSizes(int receiveBufferSize, int sendBufferSize) {
+		getInstance().socketBufferSizes(receiveBufferSize, sendBufferSize);
+	}
+	
+	public static void writeBufferWaterMark(int low, int high) {
+		getInstance().writeBufferWaterMark(low, high);
+	}
+	
+	public static void maxPipelinedRequests(int maxPipelinedRequests) {
+		getInstance().maxPipelinedRequests(maxPipelinedRequests);
+	}
+	
+	public static void idleTimeouts(int readIdleTimeout, int writeIdleTimeout, int keepAliveTimeout) {
+		getInstance().idleTimeouts(readIdleTimeout, writeIdleTimeout, keepAliveTimeout);
+	}
+	
+	public static void maxRequestsPerConnection(int maxRequestsPerConnection) {
+		getInstance().maxRequestsPerConnection(maxRequestsPerConnection);
+	}
+	
+	public static void maxPendingWriteBytes(long maxPendingWriteBytes) {
+		getInstance().maxPendingWriteBytes(maxPendingWriteBytes);
+	}
+	
+	public static void maxPendingWriteBytes(long maxPendingWriteBytes, int slowReaderTimeout) {
+		getInstance().maxPendingWriteBytes(maxPendingWriteBytes, slowReaderTimeout);
+	}
+	
+	public static void flushConsolidation(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+		getInstance().flushConsolidation(explicitFlushAfterFlushes, consolidateWhenNoReadInProgress);
+	}
+	
+	public static void drainTimeout(int drainTimeout) {
+		getInstance().drainTimeout(drainTimeout);
+	}
+	
+	public static void allocator(boolean pooled, boolean preferDirect) {
+		getInstance().allocator(pooled, preferDirect);
+	}
+	
 	public static void ipAddress(String ipAddress) {
 		getInstance().ipAddress(ipAddress);
 	}
@@ -106,6 +218,14 @@ public final class ASpark {
 		getInstance().staticFileLocationACL(path, allow);
 	}
 	
+	public static void staticFileLocationCachePolicy(CachePolicy policy) {
+		getInstance().staticFileLocationCachePolicy(policy);
+	}
+	
+	public static void staticFileLocationCachePolicy(String path, CachePolicy policy) {
+		getInstance().staticFileLocationCachePolicy(path, policy);
+	}
+	
 	public static void externalStaticFileLocation(String externalFolder) {
 		getInstance().externalStaticFileLocation(externalFolder);
 	}
@@ -118,6 +238,38 @@ public final class ASpark {
 		getInstance().externalStaticFileLocationACL(path, allow);
 	}
 	
+	public static void externalStaticFileLocationCachePolicy(CachePolicy policy) {
+		getInstance().externalStaticFileLocationCachePolicy(policy);
+	}
+	
+	public static void externalStaticFileLocationCachePolicy(String path, CachePolicy policy) {
+		getInstance().externalStaticFileLocationCachePolicy(path, policy);
+	}
+	
+	public static void externalStaticFileMapping(boolean enabled) {
+		getInstance().externalStaticFileMapping(enabled);
+	}
+	
+	public static void externalStaticFileMapping(long minFileSize, long maxTotalSize) {
+		getInstance().externalStaticFileMapping(minFileSize, maxTotalSize);
+	}
+	
+	public static long externalStaticFileMappedSize() {
+		return getInstance().externalStaticFileMappedSize();
+	}
+	
+	public static void responseCacheSize(long maxTotalSize) {
+		getInstance().responseCacheSize(maxTotalSize);
+	}
+	
+	public static void invalidateResponseCache() {
+		getInstance().invalidateResponseCache();
+	}
+	
+	public static void invalidateResponseCache(String path) {
+		getInstance().invalidateResponseCache(path);
+	}
+	
 	public static void exception(Class<? extends Exception> exceptionClass, ExceptionHandler handler) {
 		getInstance().exception(exceptionClass, handler);
 	}
@@ -137,6 +289,30 @@ public final class ASpark {
 		getInstance().threadPool(maxThreads);
 	}
 	
+	public static void compression(boolean enabled) {
+		getInstance().compression(enabled);
+	}
+	
+	public static boolean compression() {
+		return getInstance().compression();
+	}
+	
+	public static void compressionLevel(int level) {
+		getInstance().compressionLevel(level);
+	}
+	
+	public static void compressionMinSize(int minSize) {
+		getInstance().compressionMinSize(minSize);
+	}
+	
+	public static void compressibleMimeTypes(String... types) {
+		getInstance().compressibleMimeTypes(types);
+	}
+	
+	public static void incompressibleMimeTypes(String... types) {
+		getInstance().incompressibleMimeTypes(types);
+	}
+	
 	public static ModelAndView modelAndView(ModelAndView modelAndView) {
 		return modelAndView;
 	}
@@ -181,6 +357,110 @@ public final class ASpark {
 		getInstance().after(path, acceptType, hendler);
 	}
 
+	public static void beforeNonBlocking(FilterHandler handler) {
+		getInstance().beforeNonBlocking(handler);
+	}
+
+	public static void beforeNonBlocking(String path, FilterHandler handler) {
+		getInstance().beforeNonBlocking(path, handler);
+	}
+
+	public static void beforeNonBlocking(String path, String acceptType, FilterHandler handler) {
+		getInstance().beforeNonBlocking(path, acceptType, handler);
+	}
+
+	public static void afterNonBlocking(FilterHandler handler) {
+		getInstance().afterNonBlocking(handler);
+	}
+
+	public static void afterNonBlocking(String path, FilterHandler handler) {
+		getInstance().afterNonBlocking(path, handler);
+	}
+
+	public static void afterNonBlocking(String path, String acceptType, FilterHandler handler) {
+		getInstance().afterNonBlocking(path, acceptType, handler);
+	}
+
+	public static void getNonBlocking(String path, RouteHandler handler) {
+		getInstance().getNonBlocking(path, handler);
+	}
+	
+	public static void getNonBlocking(String path, String acceptType, RouteHandler handler) {
+		getInstance().getNonBlocking(path, acceptType, handler);
+	}
+
+	public static void getNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().getNonBlocking(path, handler, transformer);
+	}
+	
+	public static void getNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().getNonBlocking(path, acceptType, handler, transformer);
+	}
+	
+	public static void postNonBlocking(String path, RouteHandler handler) {
+		getInstance().postNonBlocking(path, handler);
+	}
+	
+	public static void postNonBlocking(String path, String acceptType, RouteHandler handler) {
+		getInstance().postNonBlocking(path, acceptType, handler);
+	}
+
+	public static void postNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().postNonBlocking(path, handler, transformer);
+	}
+	
+	public static void postNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().postNonBlocking(path, acceptType, handler, transformer);
+	}
+	
+	public static void putNonBlocking(String path, RouteHandler handler) {
+		getInstance().putNonBlocking(path, handler);
+	}
+	
+	public static void putNonBlocking(String path, String acceptType, RouteHandler handler) {
+		getInstance().putNonBlocking(path, acceptType, handler);
+	}
+
+	public static void putNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().putNonBlocking(path, handler, transformer);
+	}
+	
+	public static void putNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().putNonBlocking(path, acceptType, handler, transformer);
+	}
+	
+	public static void patchNonBlocking(String path, RouteHandler handler) {
+		getInstance().patchNonBlocking(path, handler);
+	}
+	
+	public static void patchNonBlocking(String path, String acceptType, RouteHandler handler) {
+		getInstance().patchNonBlocking(path, acceptType, handler);
+	}
+
+	public static void patchNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().patchNonBlocking(path, handler, transformer);
+	}
+	
+	public static void patchNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().patchNonBlocking(path, acceptType, handler, transformer);
+	}
+	
+	public static void deleteNonBlocking(String path, RouteHandler handler) {
+		getInstance().deleteNonBlocking(path, handler);
+	}
+	
+	public static void deleteNonBlocking(String path, String acceptType, RouteHandler handler) {
+		getInstance().deleteNonBlocking(path, acceptType, handler);
+	}
+
+	public static void deleteNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().deleteNonBlocking(path, handler, transformer);
+	}
+	
+	public static void deleteNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		getInstance().deleteNonBlocking(path, acceptType, handler, transformer);
+	}
+	
 	public static void get(String path, RouteHandler handler) {
 		getInstance().get(path, handler);
 	}
@@ -197,6 +477,22 @@ public final class ASpark {
 		getInstance().get(path, acceptType, handler, transformer);
 	}
 	
+	public static void get(String path, RouteHandler handler, ResponseCachePolicy cachePolicy) {
+		getInstance().get(path, handler, cachePolicy);
+	}
+	
+	public static void get(String path, String acceptType, RouteHandler handler, ResponseCachePolicy cachePolicy) {
+		getInstance().get(path, acceptType, handler, cachePolicy);
+	}
+	
+	public static void get(String path, RouteHandler handler, ResponseTransformer transformer, ResponseCachePolicy cachePolicy) {
+		getInstance().get(path, handler, transformer, cachePolicy);
+	}
+	
+	public static void get(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer, ResponseCachePolicy cachePolicy) {
+		getInstance().get(path, acceptType, handler, transformer, cachePolicy);
+	}
+	
 	public static void post(String path, RouteHandler handler) {
 		getInstance().post(path, handler);
 	}
@@ -26,11 +26,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -48,6 +47,11 @@ import nikoladasm.aspark.dispatcher.Route;
 import nikoladasm.aspark.dispatcher.RouteHandler;
 import nikoladasm.aspark.dispatcher.StaticResourceLocation;
 import nikoladasm.aspark.server.ASparkServer;
+import nikoladasm.aspark.server.ConcurrencyLimiter;
+import nikoladasm.aspark.server.HandlerExecutors;
+import nikoladasm.aspark.server.RequestExecutor;
+import nikoladasm.aspark.server.RequestExecutors;
+import nikoladasm.aspark.server.ServerOptions;
 
 import static java.util.Objects.requireNonNull;
 
@@ -62,14 +66,37 @@ public class ASparkInstance extends Routable {
 	private static final String BEFORE_MAPPING_ERROR_MESSAGE =
 		"This must be done before route mapping has begun";
 	private static final String[] DEFAULT_STATIC_RESOURCE_INDEX = {"index.html", "index.htm"};
+	private static final String REVALIDATION_POOL_NAME = "aspark-revalidation";
 	private static final String PROTOCOL = "TLS";
 	private static final String KEY_TYPE = "JKS";
 	private static final String MIME_TYPES_PROPERTY_FILE = "resources/mime-types.properties";
 	
+	private static final class Bulkhead {
+		private int threads;
+		private int maxQueuedRequests;
+		
+		private Bulkhead(int threads, int maxQueuedRequests) {
+			this.threads = threads;
+			this.maxQueuedRequests = maxQueuedRequests;
+		}
+	}
+	
 	private volatile String ipAddress = "0.0.0.0";
 	private volatile int port = ASPARK_DEFAULT_PORT;
-	private volatile ExecutorService pool;
 	private volatile int maxThreads;
+	private volatile ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+	private volatile RequestExecutors executors;
+	private Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+	private Map<String, String> bulkheadPaths = new LinkedHashMap<>();
+	private volatile int maxQueuedRequests;
+	private volatile int retryAfter = RequestExecutor.DEFAULT_RETRY_AFTER;
+	private volatile boolean adaptiveConcurrency;
+	private volatile int initialConcurrencyLimit = ConcurrencyLimiter.DEFAULT_INITIAL_LIMIT;
+	private volatile int minConcurrencyLimit = ConcurrencyLimiter.DEFAULT_MIN_LIMIT;
+	private volatile int maxConcurrencyLimit = ConcurrencyLimiter.DEFAULT_MAX_LIMIT;
+	private volatile boolean nativeTransport;
+	private volatile int acceptors = 1;
+	private ServerOptions serverOptions;
 	
 	private boolean started;
 	private volatile ASparkServer server;
@@ -80,18 +107,217 @@ public class ASparkInstance extends Routable {
 	private volatile SSLContext sslContext;
 	private volatile String serverName = DEFAULT_SERVER_NAME;
 	private Properties mimeTypes;
+	private CompressionPolicy compressionPolicy;
 
 	public ASparkInstance() {
 		dispatcher = new Dispatcher();
 		exceptionMap = new ExceptionMap();
 		maxThreads = Runtime.getRuntime().availableProcessors();
 		webSockets = new WebSocketMap();
+		compressionPolicy = new CompressionPolicy();
+		dispatcher.compressionPolicy(compressionPolicy);
+		serverOptions = new ServerOptions();
 	}
 	
 	public synchronized void threadPool(int maxThreads) {
 		this.maxThreads = maxThreads;
 	}
 	
+	public synchronized void executionMode(ExecutionMode executionMode) {
+		requireNonNull(executionMode,"Execution mode can't be null");
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		this.executionMode = executionMode;
+	}
+	
+	public ExecutionMode executionMode() {
+		return executionMode;
+	}
+	
+	public synchronized void requestQueue(int maxQueuedRequests, int retryAfter) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		if (maxQueuedRequests < 0)
+			throw new IllegalArgumentException("Max queued requests can't be negative");
+		if (retryAfter < 0)
+			throw new IllegalArgumentException("Retry after can't be negative");
+		this.maxQueuedRequests = maxQueuedRequests;
+		this.retryAfter = retryAfter;
+	}
+	
+	public void requestQueue(int maxQueuedRequests) {
+		requestQueue(maxQueuedRequests, RequestExecutor.DEFAULT_RETRY_AFTER);
+	}
+	
+	public int requestQueueDepth() {
+		RequestExecutors executors = this.executors;
+		return (executors == null) ? 0 : executors.defaultExecutor().queueDepth();
+	}
+	
+	public long shedRequests() {
+		RequestExecutors executors = this.executors;
+		return (executors == null) ? 0 : executors.defaultExecutor().shedRequests();
+	}
+	
+	public synchronized void bulkhead(String name, int threads, int maxQueuedRequests) {
+		requireNonNull(name,"Bulkhead name can't be null");
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		if (threads < 1)
+			throw new IllegalArgumentException("Bulkhead threads count must be positive");
+		if (maxQueuedRequests < 0)
+			throw new IllegalArgumentException("Max queued requests can't be negative");
+		bulkheads.put(name, new Bulkhead(threads, maxQueuedRequests));
+	}
+	
+	public void bulkhead(String name, int threads) {
+		bulkhead(name, threads, 0);
+	}
+	
+	public synchronized void bulkheadPath(String pathPrefix, String name) {
+		requireNonNull(pathPrefix,"Path prefix can't be null");
+		requireNonNull(name,"Bulkhead name can't be null");
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		if (!bulkheads.containsKey(name))
+			throw new IllegalArgumentException("Unknown bulkhead "+name);
+		bulkheadPaths.put(sanitizePath(pathPrefix), name);
+	}
+	
+	public int requestQueueDepth(String bulkhead) {
+		RequestExecutors executors = this.executors;
+		RequestExecutor executor = (executors == null) ? null : executors.get(bulkhead);
+		return (executor == null) ? 0 : executor.queueDepth();
+	}
+	
+	public long shedRequests(String bulkhead) {
+		RequestExecutors executors = this.executors;
+		RequestExecutor executor = (executors == null) ? null : executors.get(bulkhead);
+		return (executor == null) ? 0 : executor.shedRequests();
+	}
+	
+	public synchronized void adaptiveConcurrency(boolean enabled) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		adaptiveConcurrency = enabled;
+	}
+	
+	public synchronized void adaptiveConcurrency(int initialLimit, int minLimit, int maxLimit) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		if (minLimit < 1 || maxLimit < minLimit)
+			throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+		initialConcurrencyLimit = initialLimit;
+		minConcurrencyLimit = minLimit;
+		maxConcurrencyLimit = maxLimit;
+		adaptiveConcurrency = true;
+	}
+	
+	public int concurrencyLimit() {
+		RequestExecutors executors = this.executors;
+		if (executors == null || executors.defaultExecutor().limiter() == null) return 0;
+		return executors.defaultExecutor().limiter().limit();
+	}
+	
+	public synchronized void nativeTransport(boolean nativeTransport) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		this.nativeTransport = nativeTransport;
+	}
+	
+	public boolean nativeTransport() {
+		return nativeTransport;
+	}
+	
+	public synchronized void acceptors(int acceptors) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		if (acceptors < 1)
+			throw new IllegalArgumentException("Acceptors count must be positive");
+		this.acceptors = acceptors;
+	}
+	
+	public int acceptors() {
+		return acceptors;
+	}
+	
+	public synchronized void bossThreads(int bossThreads) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.bossThreads(bossThreads);
+	}
+	
+	public synchronized void workerThreads(int workerThreads) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.workerThreads(workerThreads);
+	}
+	
+	public synchronized void backlog(int backlog) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.backlog(backlog);
+	}
+	
+	public synchronized void socketBufferSizes(int receiveBufferSize, int sendBufferSize) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.receiveBufferSize(receiveBufferSize);
+		serverOptions.sendBufferSize(sendBufferSize);
+	}
+	
+	public synchronized void writeBufferWaterMark(int low, int high) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.writeBufferWaterMark(low, high);
+	}
+	
+	public synchronized void maxPipelinedRequests(int maxPipelinedRequests) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.maxPipelinedRequests(maxPipelinedRequests);
+	}
+	
+	public synchronized void idleTimeouts(int readIdleTimeout, int writeIdleTimeout, int keepAliveTimeout) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.idleTimeouts(readIdleTimeout, writeIdleTimeout, keepAliveTimeout);
+	}
+	
+	public synchronized void maxRequestsPerConnection(int maxRequestsPerConnection) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.maxRequestsPerConnection(maxRequestsPerConnection);
+	}
+	
+	public synchronized void maxPendingWriteBytes(long maxPendingWriteBytes) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.maxPendingWriteBytes(maxPendingWriteBytes);
+	}
+	
+	public synchronized void maxPendingWriteBytes(long maxPendingWriteBytes, int slowReaderTimeout) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.maxPendingWriteBytes(maxPendingWriteBytes, slowReaderTimeout);
+	}
+	
+	public synchronized void flushConsolidation(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.flushConsolidation(explicitFlushAfterFlushes, consolidateWhenNoReadInProgress);
+	}
+	
+	public synchronized void drainTimeout(int drainTimeout) {
+		serverOptions.drainTimeout(drainTimeout);
+	}
+	
+	public synchronized void allocator(boolean pooled, boolean preferDirect) {
+		if (started)
+			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
+		serverOptions.allocator(pooled, preferDirect);
+	}
+	
 	public synchronized void ipAddress(String ipAddress) {
 		if (started)
 			throw new ASparkException(BEFORE_MAPPING_ERROR_MESSAGE);
@@ -180,10 +406,24 @@ public class ASparkInstance extends Routable {
 	public void staticFileLocationACL(String path, boolean allow) {
 		if (dispatcher.location() == null)
 			throw new ASparkException("Static file location not set");
-		ACLEntry entry = new ACLEntry(buildPathPattern(path), allow);
+		ACLEntry entry = new ACLEntry(path, allow);
 		dispatcher.location().aclEntry(entry);
 	}
 	
+	public void staticFileLocationCachePolicy(CachePolicy policy) {
+		if (dispatcher.location() == null)
+			throw new ASparkException("Static file location not set");
+		requireNonNull(policy,"Cache policy can't be null");
+		dispatcher.location().cachePolicy(policy);
+	}
+	
+	public void staticFileLocationCachePolicy(String path, CachePolicy policy) {
+		if (dispatcher.location() == null)
+			throw new ASparkException("Static file location not set");
+		requireNonNull(policy,"Cache policy can't be null");
+		dispatcher.location().cachePolicy(buildPathPattern(path), policy);
+	}
+	
 	public synchronized void externalStaticFileLocation(String externalFolder) {
 		externalStaticFileLocation(externalFolder, DEFAULT_STATIC_RESOURCE_INDEX);
 	}
@@ -199,10 +439,53 @@ public class ASparkInstance extends Routable {
 	public void externalStaticFileLocationACL(String path, boolean allow) {
 		if (dispatcher.externalLocation() == null)
 			throw new ASparkException("External static file location not set");
-		ACLEntry entry = new ACLEntry(buildPathPattern(path), allow);
+		ACLEntry entry = new ACLEntry(path, allow);
 		dispatcher.externalLocation().aclEntry(entry);
 	}
 	
+	public void externalStaticFileLocationCachePolicy(CachePolicy policy) {
+		if (dispatcher.externalLocation() == null)
+			throw new ASparkException("External static file location not set");
+		requireNonNull(policy,"Cache policy can't be null");
+		dispatcher.externalLocation().cachePolicy(policy);
+	}
+	
+	public void externalStaticFileLocationCachePolicy(String path, CachePolicy policy) {
+		if (dispatcher.externalLocation() == null)
+			throw new ASparkException("External static file location not set");
+		requireNonNull(policy,"Cache policy can't be null");
+		dispatcher.externalLocation().cachePolicy(buildPathPattern(path), policy);
+	}
+	
+	public void externalStaticFileMapping(boolean enabled) {
+		dispatcher.mappedFiles().enabled(enabled);
+	}
+	
+	public void externalStaticFileMapping(long minFileSize, long maxTotalSize) {
+		dispatcher.mappedFiles().minFileSize(minFileSize);
+		dispatcher.mappedFiles().maxTotalSize(maxTotalSize);
+		dispatcher.mappedFiles().enabled(true);
+	}
+	
+	public long externalStaticFileMappedSize() {
+		return dispatcher.mappedFiles().totalSize();
+	}
+	
+	public void responseCacheSize(long maxTotalSize) {
+		if (maxTotalSize < 0)
+			throw new IllegalArgumentException("Response cache size can't be negative");
+		dispatcher.responseCache().maxTotalSize(maxTotalSize);
+	}
+	
+	public void invalidateResponseCache() {
+		dispatcher.responseCache().invalidate();
+	}
+	
+	public void invalidateResponseCache(String path) {
+		requireNonNull(path,"Path can't be null");
+		dispatcher.responseCache().invalidate(path);
+	}
+	
 	public void exception(Class<? extends Exception> exceptionClass, ExceptionHandler handler) {
 		exceptionMap.put(exceptionClass, handler);
 	}
@@ -221,10 +504,29 @@ public class ASparkInstance extends Routable {
 	
 	public synchronized void init() {
 		if(!started) {
-			pool = Executors.newFixedThreadPool(maxThreads);
+			ConcurrencyLimiter limiter = null;
+			if (adaptiveConcurrency)
+				limiter = new ConcurrencyLimiter(initialConcurrencyLimit, minConcurrencyLimit, maxConcurrencyLimit);
+			else if (executionMode == ExecutionMode.VIRTUAL_THREADS && maxQueuedRequests > 0)
+				limiter = new ConcurrencyLimiter(maxThreads, maxThreads, maxThreads);
+			executors = new RequestExecutors(new RequestExecutor(
+				HandlerExecutors.create(executionMode, maxThreads), maxQueuedRequests, retryAfter, limiter));
+			bulkheads.forEach((name, bulkhead) ->
+				executors.add(name, new RequestExecutor(
+					HandlerExecutors.create(executionMode, bulkhead.threads, "bulkhead-"+name),
+					bulkhead.maxQueuedRequests,
+					retryAfter,
+					(executionMode == ExecutionMode.VIRTUAL_THREADS) ?
+						new ConcurrencyLimiter(bulkhead.threads, bulkhead.threads, bulkhead.threads) :
+						null)));
+			bulkheadPaths.forEach(executors::bind);
+			RequestExecutor revalidation = new RequestExecutor(
+				HandlerExecutors.create(executionMode, maxThreads, REVALIDATION_POOL_NAME));
+			executors.add(REVALIDATION_POOL_NAME, revalidation);
+			dispatcher.revalidationExecutor(revalidation);
 			server = new ASparkServer(
 					latch,
-					pool,
+					executors,
 					ipAddress,
 					port,
 					dispatcher,
@@ -232,6 +534,10 @@ public class ASparkInstance extends Routable {
 					webSockets,
 					sslContext,
 					serverName);
+			server.compressionPolicy(compressionPolicy);
+			server.nativeTransport(nativeTransport);
+			server.acceptors(acceptors);
+			server.options(serverOptions);
 			new Thread(() -> {
 				server.start();
 			}).start();
@@ -262,7 +568,9 @@ public class ASparkInstance extends Routable {
 			String path,
 			String acceptedType,
 			RouteHandler handler,
-			ResponseTransformer responseTransformer) {
+			ResponseTransformer responseTransformer,
+			boolean nonBlocking,
+			ResponseCachePolicy cachePolicy) {
 		init();
 		requireNonNull(httpMethod,"Http method can't be null");
 		requireNonNull(path,"Path can't be null");
@@ -278,7 +586,9 @@ public class ASparkInstance extends Routable {
 				startWithWildcard,
 				acceptedType,
 				handler,
-				responseTransformer);
+				responseTransformer,
+				nonBlocking,
+				cachePolicy);
 		dispatcher.routes().addLast(route);
 	}
 
@@ -286,7 +596,8 @@ public class ASparkInstance extends Routable {
 	public void addFilter(boolean before,
 			String path,
 			String acceptedType,
-			FilterHandler handler) {
+			FilterHandler handler,
+			boolean nonBlocking) {
 		init();
 		requireNonNull(path,"Path can't be null");
 		requireNonNull(acceptedType,"Accepted type can't be null");
@@ -298,7 +609,8 @@ public class ASparkInstance extends Routable {
 				parameterNamesMap,
 				startWithWildcard,
 				acceptedType,
-				handler);
+				handler,
+				nonBlocking);
 		if (before)
 			dispatcher.before().addLast(filter);
 		else
@@ -308,14 +620,19 @@ public class ASparkInstance extends Routable {
 	public synchronized void stop() {
 		if (server != null) {
 			server.stop();
-			pool.shutdown();
+			executors.all().forEach(executor -> executor.executor().shutdown());
 			try {
-				pool.awaitTermination(15, TimeUnit.SECONDS);
-				pool.shutdownNow();
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+				for (RequestExecutor executor : executors.all())
+					executor.executor().awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
 			} catch (InterruptedException e) {
 				LOG.error("Could not stop thread pool", e);
-				pool.shutdownNow();
 			}
+			executors.all().forEach(executor -> executor.executor().shutdownNow());
+			if (dispatcher.externalLocation() != null)
+				dispatcher.externalLocation().close();
+			dispatcher.mappedFiles().clear();
+			dispatcher.responseCache().invalidate();
 			latch = new CountDownLatch(1);
 			started = false;
 		}
@@ -349,6 +666,30 @@ public class ASparkInstance extends Routable {
 		webSockets.add(path, handler);
 	}
 	
+	public void compression(boolean enabled) {
+		compressionPolicy.enabled(enabled);
+	}
+	
+	public boolean compression() {
+		return compressionPolicy.enabled();
+	}
+	
+	public void compressionLevel(int level) {
+		compressionPolicy.level(level);
+	}
+	
+	public void compressionMinSize(int minSize) {
+		compressionPolicy.minSize(minSize);
+	}
+	
+	public void compressibleMimeTypes(String... types) {
+		compressionPolicy.compressibleTypes(types);
+	}
+	
+	public void incompressibleMimeTypes(String... types) {
+		compressionPolicy.incompressibleTypes(types);
+	}
+	
 	public void serverName(String serverName) {
 		requireNonNull(serverName,"Server name can't be null;");
 		this.serverName = serverName;
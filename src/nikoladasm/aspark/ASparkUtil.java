@@ -115,6 +115,32 @@ public final class ASparkUtil {
 		return false;
 	}
 	
+	public static boolean isAcceptEncoding(String requestAcceptEncodings,
+			String encoding) {
+		if (requestAcceptEncodings == null) return false;
+		boolean accepted = false;
+		String[] requestAcceptEncodingsArray = requestAcceptEncodings.split(",");
+		for (int i=0; i<requestAcceptEncodingsArray.length; i++) {
+			String[] parts = requestAcceptEncodingsArray[i].split(";");
+			String name = parts[0].trim();
+			if (!name.equalsIgnoreCase(encoding) && !name.equals("*")) continue;
+			boolean allowed = true;
+			for (int j=1; j<parts.length; j++) {
+				String parameter = parts[j].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						allowed = Double.parseDouble(parameter.substring(2)) > 0;
+					} catch (NumberFormatException e) {
+						allowed = false;
+					}
+				}
+			}
+			if (name.equalsIgnoreCase(encoding)) return allowed;
+			accepted = allowed;
+		}
+		return accepted;
+	}
+	
 	public static long copyStreamToByteBuf(InputStream input, ByteBuf buf) throws IOException {
 		byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
 		long count = 0;
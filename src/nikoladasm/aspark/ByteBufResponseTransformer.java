@@ -0,0 +1,47 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+@FunctionalInterface
+public interface ByteBufResponseTransformer extends ResponseTransformer {
+	void write(Object body, ByteBuf out) throws Exception;
+	
+	@Override
+	default Object transform(Object body) throws Exception {
+		ByteBuf out = Unpooled.buffer();
+		write(body, out);
+		return out;
+	}
+	
+	@Override
+	default Object serialize(Object body, ByteBufAllocator alloc) throws Exception {
+		ByteBuf out = alloc.buffer();
+		try {
+			write(body, out);
+		} catch (Exception e) {
+			out.release();
+			throw e;
+		}
+		return out;
+	}
+}
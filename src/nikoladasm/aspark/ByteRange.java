@@ -0,0 +1,115 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ByteRange {
+
+	public static final String BYTES_UNIT = "bytes";
+
+	private static final String RANGES_PREFIX = BYTES_UNIT+"=";
+	private static final int MAX_RANGES = 16;
+
+	private long start;
+	private long end;
+
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	public long start() {
+		return start;
+	}
+
+	public long end() {
+		return end;
+	}
+
+	public long length() {
+		return end - start + 1;
+	}
+
+	public String contentRange(long totalLength) {
+		return BYTES_UNIT+" "+start+"-"+end+"/"+totalLength;
+	}
+
+	public static String unsatisfiedContentRange(long totalLength) {
+		return BYTES_UNIT+" */"+totalLength;
+	}
+
+	public static List<ByteRange> parse(String header, long totalLength) {
+		if (header == null || totalLength < 0) return null;
+		header = header.trim();
+		if (!header.regionMatches(true, 0, RANGES_PREFIX, 0, RANGES_PREFIX.length())) return null;
+		String[] specs = header.substring(RANGES_PREFIX.length()).split(",");
+		if (specs.length > MAX_RANGES) return null;
+		List<ByteRange> ranges = new ArrayList<>();
+		try {
+			for (String spec : specs) {
+				spec = spec.trim();
+				if (spec.isEmpty()) continue;
+				int dash = spec.indexOf('-');
+				if (dash < 0) return null;
+				String first = spec.substring(0, dash).trim();
+				String last = spec.substring(dash+1).trim();
+				long start;
+				long end;
+				if (first.isEmpty()) {
+					long suffix = Long.parseLong(last);
+					if (suffix < 0) return null;
+					if (suffix == 0) continue;
+					start = Math.max(0, totalLength - suffix);
+					end = totalLength - 1;
+				} else {
+					start = Long.parseLong(first);
+					end = (last.isEmpty()) ? Long.MAX_VALUE : Long.parseLong(last);
+					if (start < 0 || end < start) return null;
+					end = Math.min(end, totalLength - 1);
+				}
+				if (start >= totalLength) continue;
+				ranges.add(new ByteRange(start, end));
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return coalesce(ranges);
+	}
+
+	private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+		if (ranges.size() < 2) return ranges;
+		Collections.sort(ranges, (r1, r2) -> Long.compare(r1.start, r2.start));
+		List<ByteRange> result = new ArrayList<>();
+		ByteRange current = ranges.get(0);
+		for (int i=1; i<ranges.size(); i++) {
+			ByteRange range = ranges.get(i);
+			if (range.start <= current.end + 1) {
+				current = new ByteRange(current.start, Math.max(current.end, range.end));
+			} else {
+				result.add(current);
+				current = range;
+			}
+		}
+		result.add(current);
+		return result;
+	}
+}
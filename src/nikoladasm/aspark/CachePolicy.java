@@ -0,0 +1,68 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+public class CachePolicy {
+
+	public static final int DEFAULT_MAX_AGE = 60;
+	public static final int IMMUTABLE_MAX_AGE = 365 * 24 * 60 * 60;
+
+	public static final CachePolicy DEFAULT = new CachePolicy(DEFAULT_MAX_AGE, false, false);
+	public static final CachePolicy NO_CACHE = new CachePolicy(0, false, false);
+	public static final CachePolicy IMMUTABLE = new CachePolicy(IMMUTABLE_MAX_AGE, true, true);
+
+	private int maxAge;
+	private boolean shared;
+	private boolean immutable;
+	private String cacheControl;
+
+	public CachePolicy(int maxAge, boolean shared, boolean immutable) {
+		if (maxAge < 0)
+			throw new IllegalArgumentException("Max age can't be negative");
+		this.maxAge = maxAge;
+		this.shared = shared;
+		this.immutable = immutable;
+		if (maxAge == 0) {
+			cacheControl = "no-cache";
+		} else {
+			cacheControl = ((shared) ? "public" : "private")+", max-age="+maxAge;
+			if (immutable) cacheControl += ", immutable";
+		}
+	}
+
+	public CachePolicy(int maxAge, boolean shared) {
+		this(maxAge, shared, false);
+	}
+
+	public int maxAge() {
+		return maxAge;
+	}
+
+	public boolean shared() {
+		return shared;
+	}
+
+	public boolean immutable() {
+		return immutable;
+	}
+
+	public String cacheControl() {
+		return cacheControl;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import static java.util.Objects.requireNonNull;
+
+public class CompressionPolicy {
+
+	public static final String OVERRIDE_HEADER = "X-ASpark-Compression";
+	public static final String OVERRIDE_ON = "on";
+	public static final String OVERRIDE_OFF = "off";
+
+	public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+	public static final int DEFAULT_MIN_SIZE = 1024;
+
+	private static final String[] DEFAULT_COMPRESSIBLE_TYPES = {
+		"text/",
+		"application/javascript",
+		"application/x-javascript",
+		"application/json",
+		"application/xml",
+		"application/xhtml+xml",
+		"application/atom+xml",
+		"application/rss+xml",
+		"image/svg+xml"
+	};
+
+	private static final String[] DEFAULT_INCOMPRESSIBLE_TYPES = {
+		"image/",
+		"video/",
+		"audio/",
+		"font/",
+		"application/zip",
+		"application/gzip",
+		"application/x-gzip",
+		"application/x-bzip2",
+		"application/x-7z-compressed",
+		"application/x-rar-compressed",
+		"application/x-font-woff",
+		"application/pdf",
+		"application/octet-stream"
+	};
+
+	private volatile boolean enabled = true;
+	private volatile int level = DEFAULT_COMPRESSION_LEVEL;
+	private volatile int minSize = DEFAULT_MIN_SIZE;
+	private volatile String[] compressibleTypes = DEFAULT_COMPRESSIBLE_TYPES;
+	private volatile String[] incompressibleTypes = DEFAULT_INCOMPRESSIBLE_TYPES;
+
+	public void enabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean enabled() {
+		return enabled;
+	}
+
+	public void level(int level) {
+		if (level < 0 || level > 9)
+			throw new IllegalArgumentException("Compression level must be between 0 and 9");
+		this.level = level;
+	}
+
+	public int level() {
+		return level;
+	}
+
+	public void minSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public int minSize() {
+		return minSize;
+	}
+
+	public void compressibleTypes(String... types) {
+		requireNonNull(types,"Types can't be null");
+		compressibleTypes = types.clone();
+	}
+
+	public void incompressibleTypes(String... types) {
+		requireNonNull(types,"Types can't be null");
+		incompressibleTypes = types.clone();
+	}
+
+	public boolean isCompressibleType(String contentType) {
+		if (!enabled) return false;
+		if (contentType == null) return true;
+		String type = contentType.split(";")[0].trim().toLowerCase();
+		int allowed = longestMatch(type, compressibleTypes);
+		int denied = longestMatch(type, incompressibleTypes);
+		return allowed >= denied;
+	}
+
+	public boolean isCompressible(String contentType, long contentLength) {
+		if (contentLength >= 0 && contentLength < minSize) return false;
+		return isCompressibleType(contentType);
+	}
+
+	private static int longestMatch(String type, String[] prefixes) {
+		int result = -1;
+		for (String prefix : prefixes)
+			if (type.startsWith(prefix) && prefix.length() > result)
+				result = prefix.length();
+		return result;
+	}
+}
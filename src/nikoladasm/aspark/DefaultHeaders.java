@@ -0,0 +1,78 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import static io.netty.handler.codec.http.HttpHeaders.newEntity;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import io.netty.handler.codec.http.HttpHeaders.Names;
+import io.netty.handler.codec.http.HttpHeaders.Values;
+
+public class DefaultHeaders {
+
+	public static final CharSequence CONTENT_TYPE = newEntity(Names.CONTENT_TYPE);
+	public static final CharSequence SERVER = newEntity(Names.SERVER);
+	public static final CharSequence DATE = newEntity(Names.DATE);
+	public static final CharSequence VARY = newEntity(Names.VARY);
+	public static final CharSequence CONNECTION = newEntity(Names.CONNECTION);
+	public static final CharSequence DEFAULT_CONTENT_TYPE = newEntity("text/plain; charset=UTF-8");
+	public static final CharSequence ACCEPT_ENCODING = newEntity(Names.ACCEPT_ENCODING);
+	public static final CharSequence KEEP_ALIVE = newEntity(Values.KEEP_ALIVE);
+	public static final CharSequence CLOSE = newEntity(Values.CLOSE);
+
+	private static class CachedValue {
+		private final long key;
+		private final String text;
+		private final CharSequence value;
+
+		private CachedValue(long key, String text) {
+			this.key = key;
+			this.text = text;
+			value = newEntity(text);
+		}
+	}
+
+	private static volatile CachedValue date = new CachedValue(-1, "");
+	private static volatile CachedValue server = new CachedValue(0, "");
+
+	public static CharSequence date() {
+		long second = System.currentTimeMillis() / 1000;
+		CachedValue cached = date;
+		if (cached.key != second) {
+			cached = new CachedValue(second,
+				DateTimeFormatter.RFC_1123_DATE_TIME.format(
+					ZonedDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC)));
+			date = cached;
+		}
+		return cached.value;
+	}
+
+	public static CharSequence server(String serverName) {
+		CachedValue cached = server;
+		if (!cached.text.equals(serverName)) {
+			cached = new CachedValue(0, serverName);
+			server = cached;
+		}
+		return cached.value;
+	}
+}
@@ -39,6 +39,8 @@ import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
 
 import nikoladasm.aspark.HttpMethod;
+import nikoladasm.aspark.dispatcher.ResponseCache;
+import nikoladasm.aspark.dispatcher.Route;
 import nikoladasm.commons.dydamictypedmap.*;
 
 import static nikoladasm.aspark.ASparkUtil.*;
@@ -69,6 +71,8 @@ public class RequestImpl implements Request {
 	private HttpVersion version;
 	private String newPath;
 	private boolean staticResource;
+	private Route cachedRoute;
+	private ResponseCache.Entry cachedResponse;
 	
 	public RequestImpl(FullHttpRequest request,
 			QueryStringDecoder queryStringDecoder,
@@ -417,4 +421,17 @@ public class RequestImpl implements Request {
 	public boolean isStaticResource() {
 		return staticResource;
 	}
+	
+	public void cachedResponse(Route route, ResponseCache.Entry entry) {
+		cachedRoute = route;
+		cachedResponse = entry;
+	}
+	
+	public Route cachedRoute() {
+		return cachedRoute;
+	}
+	
+	public ResponseCache.Entry cachedResponse() {
+		return cachedResponse;
+	}
 }
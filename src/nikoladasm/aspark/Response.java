@@ -18,6 +18,10 @@
 
 package nikoladasm.aspark;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
 public interface Response {
 
 	void status(int statusCode);
@@ -35,4 +39,9 @@ public interface Response {
 	void cookie(String path, String name, String value, int maxAge, boolean secured, boolean httpOnly);
 	void removeCookie(String name);
 	void authenticateBasic(String realm);
+	void compression(boolean compression);
+	OutputStream outputStream();
+	Writer writer();
+	void chunk(byte[] data) throws IOException;
+	void chunk(String data) throws IOException;
 }
\ No newline at end of file
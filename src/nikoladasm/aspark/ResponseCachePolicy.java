@@ -0,0 +1,67 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import static java.util.Objects.requireNonNull;
+
+public class ResponseCachePolicy {
+
+	private static final String[] NO_QUERY_PARAMS = new String[0];
+
+	private int ttl;
+	private int staleWhileRevalidate;
+	private boolean precompressed;
+	private String[] queryParams;
+
+	public ResponseCachePolicy(int ttl, int staleWhileRevalidate, boolean precompressed, String... queryParams) {
+		if (ttl < 1)
+			throw new IllegalArgumentException("TTL must be positive");
+		if (staleWhileRevalidate < 0)
+			throw new IllegalArgumentException("Stale while revalidate can't be negative");
+		requireNonNull(queryParams,"Query params can't be null");
+		this.ttl = ttl;
+		this.staleWhileRevalidate = staleWhileRevalidate;
+		this.precompressed = precompressed;
+		this.queryParams = queryParams.clone();
+	}
+
+	public ResponseCachePolicy(int ttl, int staleWhileRevalidate) {
+		this(ttl, staleWhileRevalidate, false, NO_QUERY_PARAMS);
+	}
+
+	public ResponseCachePolicy(int ttl) {
+		this(ttl, 0, false, NO_QUERY_PARAMS);
+	}
+
+	public int ttl() {
+		return ttl;
+	}
+
+	public int staleWhileRevalidate() {
+		return staleWhileRevalidate;
+	}
+
+	public boolean precompressed() {
+		return precompressed;
+	}
+
+	public String[] queryParams() {
+		return queryParams;
+	}
+}
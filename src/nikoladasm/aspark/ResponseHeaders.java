@@ -0,0 +1,83 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+public class ResponseHeaders {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private String[] names;
+	private String[] values;
+	private int size;
+
+	public ResponseHeaders() {
+		names = new String[DEFAULT_CAPACITY];
+		values = new String[DEFAULT_CAPACITY];
+	}
+
+	public void put(String name, String value) {
+		int index = indexOf(name);
+		if (index >= 0) {
+			values[index] = value;
+			return;
+		}
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		names[size] = name;
+		values[size++] = value;
+	}
+
+	public void putIfAbsent(String name, String value) {
+		if (indexOf(name) < 0) put(name, value);
+	}
+
+	public String get(String name) {
+		int index = indexOf(name);
+		return (index < 0) ? null : values[index];
+	}
+
+	public String getOrDefault(String name, String defaultValue) {
+		int index = indexOf(name);
+		return (index < 0) ? defaultValue : values[index];
+	}
+
+	public boolean containsKey(String name) {
+		return indexOf(name) >= 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void forEach(BiConsumer<String, String> action) {
+		for (int i=0; i<size; i++)
+			action.accept(names[i], values[i]);
+	}
+
+	private int indexOf(String name) {
+		for (int i=0; i<size; i++)
+			if (names[i].equalsIgnoreCase(name)) return i;
+		return -1;
+	}
+}
@@ -24,27 +24,57 @@ import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.DefaultCookie;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedFile;
+import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.stream.ChunkedStream;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponse;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
 import static io.netty.handler.codec.http.HttpHeaders.Values.*;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_0;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
+import nikoladasm.aspark.dispatcher.MappedFiles;
+import nikoladasm.aspark.server.PipelineSequencer;
+import nikoladasm.aspark.server.ServerHandler;
 
 import static nikoladasm.aspark.HttpMethod.*;
 import static nikoladasm.aspark.ASparkUtil.*;
@@ -52,34 +82,211 @@ import static nikoladasm.aspark.ASparkUtil.*;
 public class ResponseImpl implements Response {
 	
 	private static final int DEFAULT_CHUNK_SIZE = 8192;
+	private static final int MAX_PENDING_STREAM_BYTES = 8 * DEFAULT_CHUNK_SIZE;
+	private static final String DEFAULT_CONTENT_TYPE = "text/plain; charset=UTF-8";
+	private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+	private static final String CRLF = "\r\n";
+	
+	private static class RangeInputStream extends FilterInputStream {
+		private long skip;
+		private long remaining;
+		
+		public RangeInputStream(InputStream in, long skip, long length) {
+			super(in);
+			this.skip = skip;
+			remaining = length;
+		}
+		
+		private void skipToRange() throws IOException {
+			while (skip > 0) {
+				long skipped = in.skip(skip);
+				if (skipped <= 0) {
+					if (in.read() < 0) throw new EOFException();
+					skipped = 1;
+				}
+				skip -= skipped;
+			}
+		}
+		
+		@Override
+		public int read() throws IOException {
+			skipToRange();
+			if (remaining <= 0) return -1;
+			int b = in.read();
+			if (b >= 0) remaining--;
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			skipToRange();
+			if (remaining <= 0) return -1;
+			int n = in.read(b, off, (int) Math.min(len, remaining));
+			if (n > 0) remaining -= n;
+			return n;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			if (skip > 0) return 0;
+			return (int) Math.min(in.available(), remaining);
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+	
+	private class ResponseOutputStream extends OutputStream {
+		private final AtomicLong pendingBytes = new AtomicLong();
+		private ByteBuf buffer;
+		private boolean closed;
+		
+		@Override
+		public void write(int b) throws IOException {
+			ensureOpen();
+			buffer().writeByte(b);
+			if (buffer.readableBytes() >= DEFAULT_CHUNK_SIZE) flushChunk();
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ensureOpen();
+			while (len > 0) {
+				int n = Math.min(len, DEFAULT_CHUNK_SIZE - buffer().readableBytes());
+				buffer.writeBytes(b, off, n);
+				off += n;
+				len -= n;
+				if (buffer.readableBytes() >= DEFAULT_CHUNK_SIZE) flushChunk();
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			ensureOpen();
+			flushChunk();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if (closed) return;
+			flushChunk();
+			closed = true;
+			writeObjectToChannel(LastHttpContent.EMPTY_LAST_CONTENT);
+		}
+		
+		private void abort() {
+			closed = true;
+			if (buffer != null) {
+				buffer.release();
+				buffer = null;
+			}
+		}
+		
+		private ByteBuf buffer() {
+			if (buffer == null) buffer = ctx.alloc().buffer(DEFAULT_CHUNK_SIZE);
+			return buffer;
+		}
+		
+		private void ensureOpen() throws IOException {
+			if (closed) throw new IOException("Response stream closed");
+			if (!ctx.channel().isActive()) {
+				abort();
+				throw new IOException("Connection closed");
+			}
+		}
+		
+		private void flushChunk() throws IOException {
+			boolean headersOnly = !committed;
+			commit();
+			if (buffer == null || !buffer.isReadable()) {
+				if (headersOnly) awaitWritable(push(new DefaultHttpContent(Unpooled.EMPTY_BUFFER)));
+				return;
+			}
+			ByteBuf chunk = buffer;
+			buffer = null;
+			if (httpMethod.equals(HEAD)) {
+				chunk.release();
+				return;
+			}
+			int size = chunk.readableBytes();
+			pendingBytes.addAndGet(size);
+			ChannelFuture future = push(new DefaultHttpContent(chunk));
+			future.addListener(channelFuture -> pendingBytes.addAndGet(-size));
+			awaitWritable(future);
+		}
+		
+		private void awaitWritable(ChannelFuture future) throws IOException {
+			if (ctx.executor().inEventLoop()) return;
+			if (ctx.channel().isWritable() && pendingBytes.get() <= MAX_PENDING_STREAM_BYTES) return;
+			future.awaitUninterruptibly();
+			if (!future.isSuccess()) {
+				abort();
+				throw new IOException("Response stream aborted", future.cause());
+			}
+		}
+	}
 	
 	private int status;
 	private ChannelHandlerContext ctx;
+	private PipelineSequencer.Slot slot;
 	private HttpVersion version;
-	private Map<String,String> headers;
+	private ResponseHeaders headers;
 	private Object body;
 	private ResponseTransformer transformer;
 	private boolean keepAlive;
 	private Map<String, Cookie> cookies;
 	private InputStream stream;
+	private File file;
+	private long fileLength;
+	private MappedFiles mappedFiles;
+	private FileMetadata fileMetadata;
+	private List<ByteRange> ranges;
+	private long rangesTotalLength;
 	private HttpMethod httpMethod;
 	private String serverName;
+	private Boolean compression;
+	private ResponseOutputStream output;
+	private Writer writer;
+	private boolean committed;
+	private boolean detached;
 	
 	public ResponseImpl(ChannelHandlerContext ctx,
 			HttpVersion version,
 			boolean keepAlive,
 			HttpMethod httpMethod,
 			String serverName) {
+		this(ctx, version, keepAlive, httpMethod, serverName, null);
+	}
+	
+	public ResponseImpl(ChannelHandlerContext ctx,
+			HttpVersion version,
+			boolean keepAlive,
+			HttpMethod httpMethod,
+			String serverName,
+			PipelineSequencer.Slot slot) {
 		this.ctx = ctx;
+		this.slot = slot;
 		this.version = version;
 		this.keepAlive = keepAlive;
 		status = 200;
-		headers = new HashMap<>();
+		headers = new ResponseHeaders();
 		cookies = new HashMap<>();
 		this.httpMethod = httpMethod;
 		this.serverName = serverName;
 	}
 	
+	public ResponseImpl detached() {
+		ResponseImpl response = new ResponseImpl(ctx, version, false, httpMethod, serverName);
+		response.detached = true;
+		return response;
+	}
+	
 	public void transformer(ResponseTransformer transformer) {
 		this.transformer = transformer;
 	}
@@ -95,14 +302,88 @@ public class ResponseImpl implements Response {
 	public InputStream inputStream() {
 		return stream;
 	}
+	
+	public void file(File file, long length) {
+		this.file = file;
+		fileLength = length;
+	}
+	
+	public File file() {
+		return file;
+	}
+	
+	public void mappedFile(MappedFiles mappedFiles, FileMetadata fileMetadata) {
+		this.mappedFiles = mappedFiles;
+		this.fileMetadata = fileMetadata;
+	}
+	
+	public void ranges(List<ByteRange> ranges, long totalLength) {
+		this.ranges = ranges;
+		rangesTotalLength = totalLength;
+	}
+	
+	public List<ByteRange> ranges() {
+		return ranges;
+	}
 
+	public boolean committed() {
+		return committed;
+	}
+	
+	public boolean streaming() {
+		return output != null;
+	}
+	
+	public int status() {
+		return status;
+	}
+	
+	public ResponseHeaders headers() {
+		return headers;
+	}
+	
+	public boolean hasCookies() {
+		return !cookies.isEmpty();
+	}
+	
+	public void abort() {
+		if (output != null) output.abort();
+		ctx.channel().close();
+	}
+	
 	public void send() throws Exception {
-		if (stream != null && !HTTP_1_0.equals(version))
+		if (output != null)
+			sendStreaming();
+		else if (ranges != null && (file != null || stream != null))
+			sendRanges();
+		else if (file != null)
+			sendFile();
+		else if (stream != null && !HTTP_1_0.equals(version))
 			sendChunked();
 		else
 			sendUnChunked();
 	}
 	
+	private void sendStreaming() throws Exception {
+		if (writer != null) writer.flush();
+		if (body != null && transformer != null)
+			output.write(transformer.serialize(body));
+		output.close();
+	}
+	
+	private void commit() {
+		if (committed) return;
+		committed = true;
+		HttpResponse response =
+			new DefaultHttpResponse(version, HttpResponseStatus.valueOf(status));
+		setHeades(response);
+		if (!HTTP_1_0.equals(version))
+			response.headers().set(TRANSFER_ENCODING, CHUNKED);
+		cookies.forEach((name, cookie) ->
+			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
+		write(response);
+	}
+	
 	private void sendChunked() {
 		HttpResponse response =
 			new DefaultHttpResponse(version, HttpResponseStatus.valueOf(status));
@@ -110,7 +391,7 @@ public class ResponseImpl implements Response {
 		response.headers().set(TRANSFER_ENCODING, CHUNKED);
 		cookies.forEach((name, cookie) ->
 			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
-		ctx.channel().write(response);
+		write(response);
 		Object body;
 		if (!httpMethod.equals(HEAD)) {
 			body = new HttpChunkedInput(new ChunkedStream(stream, DEFAULT_CHUNK_SIZE));
@@ -120,14 +401,146 @@ public class ResponseImpl implements Response {
 		writeObjectToChannel(body).addListener(channelFuture -> stream.close());
 	}
 	
+	private void sendFile() throws IOException {
+		boolean zeroCopy = isZeroCopy();
+		ByteBuffer mappedFile = (zeroCopy) ? null : mappedFile();
+		Object content = null;
+		if (!httpMethod.equals(HEAD)) {
+			if (zeroCopy)
+				content = fileContent(0, fileLength, true);
+			else if (mappedFile != null)
+				content = Unpooled.wrappedBuffer(mappedFile.duplicate());
+			else
+				content = new HttpChunkedInput(new ChunkedFile(new RandomAccessFile(file, "r"), 0, fileLength, DEFAULT_CHUNK_SIZE));
+		}
+		HttpResponse response =
+			new DefaultHttpResponse(version, HttpResponseStatus.valueOf(status));
+		setHeades(response);
+		response.headers().set(CONTENT_LENGTH, fileLength);
+		cookies.forEach((name, cookie) ->
+			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
+		write(response);
+		if (content == null) {
+			writeObjectToChannel(LastHttpContent.EMPTY_LAST_CONTENT);
+		} else if (content instanceof ByteBuf) {
+			writeObjectToChannel(new DefaultLastHttpContent((ByteBuf) content));
+		} else if (zeroCopy) {
+			write(content);
+			writeObjectToChannel(LastHttpContent.EMPTY_LAST_CONTENT);
+		} else {
+			writeObjectToChannel(content);
+		}
+	}
+	
+	private void sendRanges() throws IOException {
+		long totalLength = (file != null) ? fileLength : rangesTotalLength;
+		boolean multipart = ranges.size() > 1;
+		String boundary = null;
+		String partType = null;
+		if (multipart) {
+			boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+			partType = headers.getOrDefault(CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
+			headers.put(CONTENT_TYPE, MULTIPART_BYTERANGES+boundary);
+		} else {
+			headers.put(CONTENT_RANGE, ranges.get(0).contentRange(totalLength));
+		}
+		List<String> partHeaders = new ArrayList<>();
+		long contentLength = 0;
+		for (ByteRange range : ranges) {
+			if (multipart) {
+				String partHeader = CRLF+"--"+boundary+CRLF+
+					CONTENT_TYPE+": "+partType+CRLF+
+					CONTENT_RANGE+": "+range.contentRange(totalLength)+CRLF+CRLF;
+				partHeaders.add(partHeader);
+				contentLength += partHeader.length();
+			}
+			contentLength += range.length();
+		}
+		String closing = (multipart) ? CRLF+"--"+boundary+"--"+CRLF : "";
+		contentLength += closing.length();
+		List<Object> contents = (httpMethod.equals(HEAD)) ? null : rangeContents();
+		HttpResponse response =
+			new DefaultHttpResponse(version, HttpResponseStatus.valueOf(status));
+		setHeades(response);
+		response.headers().set(CONTENT_LENGTH, contentLength);
+		cookies.forEach((name, cookie) ->
+			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
+		write(response);
+		if (contents != null) {
+			for (int i=0; i<contents.size(); i++) {
+				if (multipart)
+					write(new DefaultHttpContent(Unpooled.copiedBuffer(partHeaders.get(i), US_ASCII)));
+				write(contents.get(i));
+			}
+		}
+		ChannelFuture future = writeObjectToChannel((closing.isEmpty()) ?
+			LastHttpContent.EMPTY_LAST_CONTENT :
+			new DefaultLastHttpContent(Unpooled.copiedBuffer(closing, US_ASCII)));
+		if (stream != null)
+			future.addListener(channelFuture -> stream.close());
+	}
+	
+	private List<Object> rangeContents() throws IOException {
+		List<Object> contents = new ArrayList<>();
+		boolean zeroCopy = isZeroCopy();
+		long position = 0;
+		try {
+			for (ByteRange range : ranges) {
+				if (file != null) {
+					contents.add(fileContent(range.start(), range.length(), zeroCopy));
+				} else {
+					InputStream input = new RangeInputStream(stream, range.start() - position, range.length());
+					contents.add(new ChunkedStream(input, DEFAULT_CHUNK_SIZE));
+					position = range.end() + 1;
+				}
+			}
+		} catch (IOException e) {
+			contents.forEach(this::release);
+			throw e;
+		}
+		return contents;
+	}
+	
+	private void release(Object content) {
+		try {
+			if (content instanceof ChunkedInput)
+				((ChunkedInput<?>) content).close();
+			else
+				ReferenceCountUtil.release(content);
+		} catch (Exception e) {}
+	}
+	
+	private Object fileContent(long position, long length, boolean zeroCopy) throws IOException {
+		ByteBuffer mappedFile = (zeroCopy) ? null : mappedFile();
+		if (mappedFile != null)
+			return new DefaultHttpContent(Unpooled.wrappedBuffer(mappedFile).slice((int) position, (int) length));
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		if (zeroCopy)
+			return new DefaultFileRegion(raf.getChannel(), position, length);
+		return new ChunkedFile(raf, position, length, DEFAULT_CHUNK_SIZE);
+	}
+	
+	private ByteBuffer mappedFile() {
+		if (mappedFiles == null || ctx.pipeline().get(SslHandler.class) == null) return null;
+		return mappedFiles.get(fileMetadata);
+	}
+	
+	private boolean isZeroCopy() {
+		if (ctx.pipeline().get(SslHandler.class) != null) return false;
+		return Boolean.FALSE.equals(compression) || headers.containsKey(CONTENT_ENCODING);
+	}
+	
 	private void sendUnChunked() throws Exception {
+		Object content = (stream != null) ? streamContent() : serializedContent();
+		if (content instanceof FileRegion && ctx.pipeline().get(SslHandler.class) != null)
+			content = copyFileRegion((FileRegion) content);
+		if (content instanceof FileRegion) {
+			sendFileRegion((FileRegion) content);
+			return;
+		}
 		FullHttpResponse response =
-			new DefaultFullHttpResponse(version, HttpResponseStatus.valueOf(status));
+			new DefaultFullHttpResponse(version, HttpResponseStatus.valueOf(status), (ByteBuf) content);
 		setHeades(response);
-		if (stream != null)
-			sendStream(response);
-		else
-			sendByteArray(response);
 		response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
 		cookies.forEach((name, cookie) ->
 			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
@@ -136,40 +549,104 @@ public class ResponseImpl implements Response {
 		writeObjectToChannel(response);
 	}
 	
-	private void sendByteArray(FullHttpResponse response) throws Exception {
+	private Object serializedContent() throws Exception {
 		if (transformer == null)
 			throw new UnsupportedOperationException("Operation not support");
-		if (body != null) {
-			byte[] body = transformer.serialize(this.body);
-			response.content().writeBytes(body);
+		if (body == null)
+			return Unpooled.EMPTY_BUFFER;
+		return transformer.serialize(body, ctx.alloc());
+	}
+	
+	private ByteBuf streamContent() throws IOException {
+		ByteBuf content = ctx.alloc().buffer();
+		try {
+			copyStreamToByteBuf(stream, content);
+		} catch (IOException e) {
+			content.release();
+			throw e;
+		} finally {
+			stream.close();
 		}
+		return content;
 	}
 	
-	private void sendStream(FullHttpResponse response) throws IOException {
-		copyStreamToByteBuf(stream, response.content());
-		stream.close();
+	private ByteBuf copyFileRegion(FileRegion region) throws IOException {
+		ByteBuf content = ctx.alloc().buffer((int) region.count());
+		try {
+			WritableByteChannel channel = Channels.newChannel(new ByteBufOutputStream(content));
+			long transferred = 0;
+			while (transferred < region.count()) {
+				long n = region.transferTo(channel, transferred);
+				if (n <= 0) throw new EOFException();
+				transferred += n;
+			}
+		} catch (IOException e) {
+			content.release();
+			throw e;
+		} finally {
+			region.release();
+		}
+		return content;
+	}
+	
+	private void sendFileRegion(FileRegion region) {
+		compression = false;
+		HttpResponse response =
+			new DefaultHttpResponse(version, HttpResponseStatus.valueOf(status));
+		setHeades(response);
+		response.headers().set(CONTENT_LENGTH, region.count());
+		cookies.forEach((name, cookie) ->
+			response.headers().add(SET_COOKIE, ServerCookieEncoder.LAX.encode(cookie)));
+		write(response);
+		if (httpMethod.equals(HEAD))
+			region.release();
+		else
+			write(region);
+		writeObjectToChannel(LastHttpContent.EMPTY_LAST_CONTENT);
+	}
+	
+	private ChannelFuture write(Object object) {
+		return (slot == null) ? ctx.channel().write(object) : slot.write(object);
+	}
+	
+	private ChannelFuture push(Object object) {
+		return (slot == null) ? ctx.channel().writeAndFlush(object) : slot.push(object);
 	}
 	
 	private ChannelFuture writeObjectToChannel(Object object) {
-		ChannelFuture lastContentFuture = ctx.channel().writeAndFlush(object);
+		ChannelFuture lastContentFuture = (slot == null) ?
+			ctx.channel().writeAndFlush(object) :
+			slot.writeAndFlush(object);
 		if (!keepAlive || HTTP_1_0.equals(version))
 			lastContentFuture.addListener(ChannelFutureListener.CLOSE);
 		return lastContentFuture;
 	}
 	
+	private boolean draining() {
+		ChannelHandler handler = ctx.handler();
+		return handler instanceof ServerHandler && ((ServerHandler) handler).draining();
+	}
+	
 	private void setHeades(HttpResponse response) {
-		headers.putIfAbsent(CONTENT_TYPE, "text/plain; charset=UTF-8");
-		headers.putIfAbsent(SERVER, serverName);
-		if(!headers.containsKey(DATE)) {
-			final String httpDate =
-				DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
-			headers.put(DATE, httpDate);
-		}
-		headers.putIfAbsent(VARY, "Accept-Encoding");
+		HttpHeaders responseHeaders = response.headers();
 		headers.forEach((key, value) ->
-			response.headers().add(key, value));
+			responseHeaders.add(key, value));
+		if (!headers.containsKey(CONTENT_TYPE))
+			responseHeaders.add(DefaultHeaders.CONTENT_TYPE, DefaultHeaders.DEFAULT_CONTENT_TYPE);
+		if (!headers.containsKey(SERVER))
+			responseHeaders.add(DefaultHeaders.SERVER, DefaultHeaders.server(serverName));
+		if (!headers.containsKey(DATE))
+			responseHeaders.add(DefaultHeaders.DATE, DefaultHeaders.date());
+		if (!headers.containsKey(VARY))
+			responseHeaders.add(DefaultHeaders.VARY, DefaultHeaders.ACCEPT_ENCODING);
+		if (compression != null)
+			responseHeaders.set(CompressionPolicy.OVERRIDE_HEADER,
+				(compression) ? CompressionPolicy.OVERRIDE_ON : CompressionPolicy.OVERRIDE_OFF);
+		keepAlive = keepAlive && !draining();
 		if (keepAlive)
-			response.headers().set(CONNECTION, KEEP_ALIVE);
+			responseHeaders.set(DefaultHeaders.CONNECTION, DefaultHeaders.KEEP_ALIVE);
+		else if (!HTTP_1_0.equals(version))
+			responseHeaders.set(DefaultHeaders.CONNECTION, DefaultHeaders.CLOSE);
 	}
 	
 	@Override
@@ -258,4 +735,35 @@ public class ResponseImpl implements Response {
 		status = 401;
 		headers.put(WWW_AUTHENTICATE, "Basic realm=\""+realm+"\"");
 	}
+	
+	@Override
+	public void compression(boolean compression) {
+		this.compression = compression;
+	}
+	
+	@Override
+	public OutputStream outputStream() {
+		if (detached)
+			throw new IllegalStateException("Detached response can't be streamed");
+		if (output == null) output = new ResponseOutputStream();
+		return output;
+	}
+	
+	@Override
+	public Writer writer() {
+		if (writer == null) writer = new OutputStreamWriter(outputStream(), UTF_8);
+		return writer;
+	}
+	
+	@Override
+	public void chunk(byte[] data) throws IOException {
+		if (writer != null) writer.flush();
+		outputStream().write(data);
+		output.flush();
+	}
+	
+	@Override
+	public void chunk(String data) throws IOException {
+		chunk(data.getBytes(UTF_8));
+	}
 }
@@ -18,6 +18,12 @@
 
 package nikoladasm.aspark;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 
@@ -31,8 +37,25 @@ public interface ResponseTransformer {
 		Object afterTransformation = transform(body);
 		if (afterTransformation instanceof byte[])
 			return (byte[]) afterTransformation;
-		if (afterTransformation instanceof ByteBuffer)
-			return ((ByteBuffer) afterTransformation).array();
+		if (afterTransformation instanceof ByteBuffer) {
+			ByteBuffer buffer = (ByteBuffer) afterTransformation;
+			if (buffer.hasArray() && buffer.arrayOffset() == 0 &&
+					buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+				return buffer.array();
+			byte[] result = new byte[buffer.remaining()];
+			buffer.duplicate().get(result);
+			return result;
+		}
+		if (afterTransformation instanceof ByteBuf) {
+			ByteBuf buf = (ByteBuf) afterTransformation;
+			try {
+				byte[] result = new byte[buf.readableBytes()];
+				buf.getBytes(buf.readerIndex(), result);
+				return result;
+			} finally {
+				buf.release();
+			}
+		}
 		if (afterTransformation instanceof InputStream) {
 			byte[] result = new byte[((InputStream) afterTransformation).available()];
 			((InputStream) afterTransformation).read(result);
@@ -42,4 +65,34 @@ public interface ResponseTransformer {
 			return ((String) afterTransformation).getBytes(UTF_8);
 		return afterTransformation.toString().getBytes(UTF_8);
 	}
+	
+	/**
+	 * Returned ByteBuf and FileRegion objects are passed to the server as-is;
+	 * the server takes ownership and releases them once written.
+	 */
+	default Object serialize(Object body, ByteBufAllocator alloc) throws Exception {
+		Object afterTransformation = transform(body);
+		if (afterTransformation instanceof ByteBuf || afterTransformation instanceof FileRegion)
+			return afterTransformation;
+		if (afterTransformation instanceof byte[])
+			return Unpooled.wrappedBuffer((byte[]) afterTransformation);
+		if (afterTransformation instanceof ByteBuffer)
+			return Unpooled.wrappedBuffer(((ByteBuffer) afterTransformation).duplicate());
+		if (afterTransformation instanceof InputStream) {
+			InputStream stream = (InputStream) afterTransformation;
+			ByteBuf buf = alloc.buffer(stream.available());
+			try {
+				buf.writeBytes(stream, stream.available());
+			} catch (Exception e) {
+				buf.release();
+				throw e;
+			}
+			return buf;
+		}
+		CharSequence text = (afterTransformation instanceof CharSequence) ?
+			(CharSequence) afterTransformation : afterTransformation.toString();
+		ByteBuf buf = alloc.buffer(text.length());
+		ByteBufUtil.writeUtf8(buf, text);
+		return buf;
+	}
 }
@@ -67,12 +67,39 @@ public abstract class Routable {
 			String path,
 			String acceptedType,
 			RouteHandler handler,
-			ResponseTransformer responseTransformer);
+			ResponseTransformer responseTransformer,
+			boolean nonBlocking,
+			ResponseCachePolicy cachePolicy);
 	
 	public abstract void addFilter(boolean before,
 			String path,
 			String acceptedType,
-			FilterHandler handler);
+			FilterHandler handler,
+			boolean nonBlocking);
+	
+	public void addRoute(HttpMethod httpMethod,
+			String path,
+			String acceptedType,
+			RouteHandler handler,
+			ResponseTransformer responseTransformer,
+			boolean nonBlocking) {
+		addRoute(httpMethod, path, acceptedType, handler, responseTransformer, nonBlocking, null);
+	}
+	
+	public void addRoute(HttpMethod httpMethod,
+			String path,
+			String acceptedType,
+			RouteHandler handler,
+			ResponseTransformer responseTransformer) {
+		addRoute(httpMethod, path, acceptedType, handler, responseTransformer, false, null);
+	}
+	
+	public void addFilter(boolean before,
+			String path,
+			String acceptedType,
+			FilterHandler handler) {
+		addFilter(before, path, acceptedType, handler, false);
+	}
 	
 	public void before(FilterHandler handler) {
 		addFilter(true, ALL_PATHS, defaultAcceptedType, handler);
@@ -98,6 +125,30 @@ public abstract class Routable {
 		addFilter(false, path, acceptType, handler);
 	}
 
+	public void beforeNonBlocking(FilterHandler handler) {
+		addFilter(true, ALL_PATHS, defaultAcceptedType, handler, true);
+	}
+
+	public void beforeNonBlocking(String path, FilterHandler handler) {
+		addFilter(true, path, defaultAcceptedType, handler, true);
+	}
+	
+	public void beforeNonBlocking(String path, String acceptType, FilterHandler handler) {
+		addFilter(true, path, acceptType, handler, true);
+	}
+
+	public void afterNonBlocking(FilterHandler handler) {
+		addFilter(false, ALL_PATHS, defaultAcceptedType, handler, true);
+	}
+
+	public void afterNonBlocking(String path, FilterHandler handler) {
+		addFilter(false, path, defaultAcceptedType, handler, true);
+	}
+	
+	public void afterNonBlocking(String path, String acceptType, FilterHandler handler) {
+		addFilter(false, path, acceptType, handler, true);
+	}
+
 	public void get(String path, RouteHandler handler) {
 		addRoute(GET,
 				path,
@@ -130,6 +181,50 @@ public abstract class Routable {
 				transformer);
 	}
 
+	public void get(String path, RouteHandler handler, ResponseCachePolicy cachePolicy) {
+		requireNonNull(cachePolicy,"Cache policy can't be null");
+		addRoute(GET,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				false,
+				cachePolicy);
+	}
+
+	public void get(String path, String acceptType, RouteHandler handler, ResponseCachePolicy cachePolicy) {
+		requireNonNull(cachePolicy,"Cache policy can't be null");
+		addRoute(GET,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				false,
+				cachePolicy);
+	}
+
+	public void get(String path, RouteHandler handler, ResponseTransformer transformer, ResponseCachePolicy cachePolicy) {
+		requireNonNull(cachePolicy,"Cache policy can't be null");
+		addRoute(GET,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				false,
+				cachePolicy);
+	}
+
+	public void get(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer, ResponseCachePolicy cachePolicy) {
+		requireNonNull(cachePolicy,"Cache policy can't be null");
+		addRoute(GET,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				false,
+				cachePolicy);
+	}
+
 	public void post(String path, RouteHandler handler) {
 		addRoute(POST,
 				path,
@@ -385,4 +480,184 @@ public abstract class Routable {
 				handler,
 				transformer);
 	}
+
+	public void getNonBlocking(String path, RouteHandler handler) {
+		addRoute(GET,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void getNonBlocking(String path, String acceptType, RouteHandler handler) {
+		addRoute(GET,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void getNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(GET,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void getNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(GET,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void postNonBlocking(String path, RouteHandler handler) {
+		addRoute(POST,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void postNonBlocking(String path, String acceptType, RouteHandler handler) {
+		addRoute(POST,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void postNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(POST,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void postNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(POST,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void putNonBlocking(String path, RouteHandler handler) {
+		addRoute(PUT,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void putNonBlocking(String path, String acceptType, RouteHandler handler) {
+		addRoute(PUT,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void putNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(PUT,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void putNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(PUT,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void patchNonBlocking(String path, RouteHandler handler) {
+		addRoute(PATCH,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void patchNonBlocking(String path, String acceptType, RouteHandler handler) {
+		addRoute(PATCH,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void patchNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(PATCH,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void patchNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(PATCH,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void deleteNonBlocking(String path, RouteHandler handler) {
+		addRoute(DELETE,
+				path,
+				defaultAcceptedType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void deleteNonBlocking(String path, String acceptType, RouteHandler handler) {
+		addRoute(DELETE,
+				path,
+				acceptType,
+				handler,
+				defaultResponseTransformer,
+				true);
+	}
+
+	public void deleteNonBlocking(String path, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(DELETE,
+				path,
+				defaultAcceptedType,
+				handler,
+				transformer,
+				true);
+	}
+
+	public void deleteNonBlocking(String path, String acceptType, RouteHandler handler, ResponseTransformer transformer) {
+		addRoute(DELETE,
+				path,
+				acceptType,
+				handler,
+				transformer,
+				true);
+	}
 }
@@ -18,7 +18,10 @@
 
 package nikoladasm.aspark;
 
+import java.util.concurrent.Future;
+
 public interface WebSocketContext {
-	void send(String msg);
-	void send(byte[] msg);
+	Future<Void> send(String msg);
+	Future<Void> send(byte[] msg);
+	boolean isWritable();
 }
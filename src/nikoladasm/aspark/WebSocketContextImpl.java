@@ -18,6 +18,7 @@
 
 package nikoladasm.aspark;
 
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -42,13 +43,18 @@ public class WebSocketContextImpl implements WebSocketContext {
 	}
 	
 	@Override
-	public void send(String msg) {
-		channel.writeAndFlush(new TextWebSocketFrame(msg));
+	public Future<Void> send(String msg) {
+		return channel.writeAndFlush(new TextWebSocketFrame(msg));
 	}
 	
 	@Override
-	public void send(byte[] msg) {
-		channel.writeAndFlush(new BinaryWebSocketFrame(Unpooled.copiedBuffer(msg)));
+	public Future<Void> send(byte[] msg) {
+		return channel.writeAndFlush(new BinaryWebSocketFrame(Unpooled.copiedBuffer(msg)));
+	}
+	
+	@Override
+	public boolean isWritable() {
+		return channel.isWritable();
 	}
 	
 	public ByteBuf frameBuffer() {
@@ -0,0 +1,98 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import nikoladasm.aspark.ACLEntry;
+
+public class ACLMatcher {
+
+	private static final int DEFAULT_MAX_CACHED_PATHS = 8192;
+	private static final String GROUP_PREFIX = "acl";
+
+	private final boolean empty;
+	private final Map<String, Boolean> extensions;
+	private final Pattern combined;
+	private final boolean[] decisions;
+	private final Map<String, Boolean> cache;
+	private final int maxCachedPaths;
+
+	public ACLMatcher(List<ACLEntry> entries, int maxCachedPaths) {
+		this.maxCachedPaths = maxCachedPaths;
+		empty = entries.isEmpty();
+		cache = new ConcurrentHashMap<>();
+		boolean extensionsOnly = true;
+		for (ACLEntry entry : entries)
+			if (entry.extension() == null) extensionsOnly = false;
+		if (extensionsOnly) {
+			extensions = new HashMap<>();
+			for (ACLEntry entry : entries)
+				extensions.putIfAbsent(entry.extension(), entry.allow());
+			combined = null;
+			decisions = null;
+		} else {
+			extensions = null;
+			decisions = new boolean[entries.size()];
+			StringBuilder sb = new StringBuilder();
+			for (int i=0; i<entries.size(); i++) {
+				ACLEntry entry = entries.get(i);
+				if (i > 0) sb.append('|');
+				sb.append("(?<").append(GROUP_PREFIX).append(i).append('>')
+					.append(entry.pathPattern().pattern()).append(')');
+				decisions[i] = entry.allow();
+			}
+			combined = Pattern.compile(sb.toString());
+		}
+	}
+
+	public ACLMatcher(List<ACLEntry> entries) {
+		this(entries, DEFAULT_MAX_CACHED_PATHS);
+	}
+
+	public boolean isAllowed(String path) {
+		if (empty) return true;
+		Boolean allowed = cache.get(path);
+		if (allowed != null) return allowed;
+		allowed = (extensions != null) ? matchExtension(path) : matchCombined(path);
+		if (cache.size() >= maxCachedPaths) cache.clear();
+		cache.put(path, allowed);
+		return allowed;
+	}
+
+	private boolean matchExtension(String path) {
+		int dot = path.lastIndexOf('.');
+		if (dot < 0 || path.indexOf('/', dot) >= 0) return false;
+		Boolean allowed = extensions.get(path.substring(dot+1));
+		return (allowed == null) ? false : allowed;
+	}
+
+	private boolean matchCombined(String path) {
+		Matcher matcher = combined.matcher(path);
+		if (!matcher.matches()) return false;
+		for (int i=0; i<decisions.length; i++)
+			if (matcher.start(GROUP_PREFIX+i) >= 0) return decisions[i];
+		return false;
+	}
+}
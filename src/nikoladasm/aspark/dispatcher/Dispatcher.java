@@ -1,39 +1,76 @@
 package nikoladasm.aspark.dispatcher;
 
+import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT_ENCODING;
+import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT_RANGES;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CACHE_CONTROL;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_ENCODING;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_RANGE;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaders.Names.ETAG;
 import static io.netty.handler.codec.http.HttpHeaders.Names.EXPIRES;
 import static io.netty.handler.codec.http.HttpHeaders.Names.IF_MODIFIED_SINCE;
+import static io.netty.handler.codec.http.HttpHeaders.Names.IF_NONE_MATCH;
+import static io.netty.handler.codec.http.HttpHeaders.Names.IF_RANGE;
 import static io.netty.handler.codec.http.HttpHeaders.Names.LAST_MODIFIED;
+import static io.netty.handler.codec.http.HttpHeaders.Names.RANGE;
+import static io.netty.handler.codec.http.HttpHeaders.Names.VARY;
+import static io.netty.handler.codec.http.HttpHeaders.Values.DEFLATE;
+import static nikoladasm.aspark.ASparkUtil.isAcceptEncoding;
 import static nikoladasm.aspark.ASparkUtil.isEqualHttpMethod;
 import static nikoladasm.aspark.ASparkUtil.mimeType;
+import static nikoladasm.aspark.ByteRange.BYTES_UNIT;
 import static nikoladasm.aspark.HttpMethod.GET;
 import static nikoladasm.aspark.Routable.DEFAULT_RESPONSE_TRANSFORMER;
+import static nikoladasm.aspark.dispatcher.PrecompressedResources.GZIP;
+import static nikoladasm.aspark.dispatcher.PrecompressedResources.GZIP_EXTENSION;
 
-import java.io.File;
 import java.io.IOException;
-import java.time.Instant;
-import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import nikoladasm.aspark.ByteRange;
+import nikoladasm.aspark.CachePolicy;
+import nikoladasm.aspark.CompressionPolicy;
 import nikoladasm.aspark.HttpMethod;
 import nikoladasm.aspark.RequestImpl;
 import nikoladasm.aspark.ResponseImpl;
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
 import nikoladasm.aspark.dispatcher.StaticResourceLocation.StaticResource;
 
 public class Dispatcher {
 
-	private static final int HTTP_CACHE_SECONDS = 60;
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.dispatcher.Dispatcher.class);
 
+	private static final CompletionStage<Boolean> ROUTE_FOUND = CompletableFuture.completedFuture(true);
+	private static final CompletionStage<Boolean> ROUTE_NOT_FOUND = CompletableFuture.completedFuture(false);
+	
 	private RoutesList routes;
 	private FiltersList before;
 	private FiltersList after;
 	private StaticResourceLocation location;
 	private StaticResourceLocation externalLocation;
 	private Properties mimeTypes;
+	private PrecompressedResources precompressed;
+	private EntityTags entityTags;
+	private MappedFiles mappedFiles;
+	private ResponseCache responseCache;
+	private CompressionPolicy compressionPolicy;
+	private volatile Executor revalidationExecutor;
 
 	public Dispatcher(
 			RoutesList routes,
@@ -48,6 +85,12 @@ public class Dispatcher {
 		this.location = location;
 		this.externalLocation = externalLocation;
 		this.mimeTypes = (mimeTypes == null) ? new Properties() : mimeTypes;
+		precompressed = new PrecompressedResources();
+		entityTags = new EntityTags();
+		mappedFiles = new MappedFiles();
+		responseCache = new ResponseCache();
+		compressionPolicy = new CompressionPolicy();
+		revalidationExecutor = ForkJoinPool.commonPool();
 	}
 	
 	public Dispatcher(Properties mimeTypes) {
@@ -74,6 +117,26 @@ public class Dispatcher {
 		this.mimeTypes = mimeTypes;
 	}
 	
+	public void compressionPolicy(CompressionPolicy compressionPolicy) {
+		this.compressionPolicy = compressionPolicy;
+	}
+	
+	public MappedFiles mappedFiles() {
+		return mappedFiles;
+	}
+	
+	public ResponseCache responseCache() {
+		return responseCache;
+	}
+	
+	public void revalidationExecutor(Executor revalidationExecutor) {
+		this.revalidationExecutor = revalidationExecutor;
+	}
+	
+	public Executor revalidationExecutor() {
+		return revalidationExecutor;
+	}
+	
 	public void location(StaticResourceLocation location) {
 		this.location = location;
 	}
@@ -90,7 +153,7 @@ public class Dispatcher {
 		return externalLocation;
 	}
 	
-	public boolean process(
+	public CompletionStage<Boolean> process(
 			RequestImpl request,
 			ResponseImpl response) throws Exception {
 		String acceptType = request.acceptType();
@@ -107,23 +170,74 @@ public class Dispatcher {
 			processRoutes(
 					request,
 					response);
+		Route cacheRoute = (routeFound) ? request.cachedRoute() : null;
+		if (cacheRoute != null && request.cachedResponse() != null) {
+			revalidate(request, response, cacheRoute, request.cachedResponse());
+			return ROUTE_FOUND;
+		}
+		if (routeFound && response.body() instanceof CompletionStage) {
+			CompletionStage<?> stage = (CompletionStage<?>) response.body();
+			response.body(null);
+			return stage.thenApply(body -> {
+				response.body(body);
+				try {
+					processAfterFilters(request, response, config);
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+				return true;
+			});
+		}
 		if (!routeFound) {
 			routeFound = processStaticResources(
 					request,
 					response,
 					httpMethod);
 		}
+		processAfterFilters(request, response, config);
+		if (cacheRoute != null)
+			cacheResponse(request, response, cacheRoute);
+		if (!routeFound) {
+			response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+			response.status(404);
+		}
+		return (routeFound) ? ROUTE_FOUND : ROUTE_NOT_FOUND;
+	}
+	
+	private void processAfterFilters(
+			RequestImpl request,
+			ResponseImpl response,
+			FiltersList.FilterConfig config) throws Exception {
 		for (Filter filter : after.filteredList(FiltersList.filter(config))) {
 			request.parameterNamesMap(filter.parameterNamesMap());
 			request.startWithWildcard(filter.startWithWildcard());
 			request.parameterMatcher(config.parameterMatcher);
 			filter.handler().handle(request, response);
 		}
-		if (!routeFound) {
-			response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
-			response.status(404);
+	}
+	
+	public boolean isNonBlocking(RequestImpl request) {
+		if (!routes.hasNonBlocking() && !routes.hasCached()) return false;
+		String acceptType = request.acceptType();
+		String path = request.pathInfo();
+		RoutesList.FilterConfig routeConfig = RoutesList.createConfig(path, acceptType, request.method());
+		Iterator<Route> matched = routes.filteredList(RoutesList.filter(routeConfig)).iterator();
+		if (!matched.hasNext()) return false;
+		Route route = matched.next();
+		boolean cacheHit = false;
+		if (route.cachePolicy() != null) {
+			ResponseCache.Entry entry = responseCache.lookup(ResponseCache.key(request, route.cachePolicy()));
+			request.cachedResponse(route, entry);
+			cacheHit = entry != null;
 		}
-		return routeFound;
+		if (!route.nonBlocking() && !cacheHit) return false;
+		FiltersList.FilterConfig config = FiltersList.createConfig(path, acceptType);
+		for (Filter filter : before.filteredList(FiltersList.filter(config)))
+			if (!filter.nonBlocking()) return false;
+		if (cacheHit) return true;
+		for (Filter filter : after.filteredList(FiltersList.filter(config)))
+			if (!filter.nonBlocking()) return false;
+		return true;
 	}
 	
 	private boolean processRoutes(
@@ -139,12 +253,19 @@ public class Dispatcher {
 				request.parameterNamesMap(route.parameterNamesMap());
 				request.startWithWildcard(route.startWithWildcard());
 				request.parameterMatcher(config.parameterMatcher);
+				ResponseCache.Entry cached = cachedResponse(request, route);
+				request.cachedResponse((route.cachePolicy() != null) ? route : null, cached);
+				if (cached != null) {
+					sendCached(request, response, cached);
+					return true;
+				}
 				response.transformer(route.responseTransformer());
 				Object body = route.handler().handle(request, response);
 				response.body(body);
 				if (request.rewritePath() != null) {
 					path = request.rewritePath();
 					request.path(path);
+					request.cachedResponse(null, null);
 					break;
 				}
 				return !request.isStaticResource();
@@ -153,46 +274,234 @@ public class Dispatcher {
 		return false;
 	}
 	
+	private ResponseCache.Entry cachedResponse(RequestImpl request, Route route) {
+		if (route.cachePolicy() == null) return null;
+		if (request.cachedRoute() == route) return request.cachedResponse();
+		return responseCache.lookup(ResponseCache.key(request, route.cachePolicy()));
+	}
+	
+	private void revalidate(RequestImpl request, ResponseImpl response, Route route, ResponseCache.Entry entry) {
+		if (!responseCache.startRevalidation(entry)) return;
+		ResponseImpl revalidation = response.detached();
+		try {
+			revalidationExecutor.execute(() -> {
+				try {
+					request.cachedResponse(route, null);
+					process(request, revalidation).whenComplete((routeFound, t) -> {
+						if (t != null) LOG.warn("Cached response revalidation failed", t);
+						responseCache.endRevalidation(entry);
+					});
+				} catch (Exception e) {
+					LOG.warn("Cached response revalidation failed", e);
+					responseCache.endRevalidation(entry);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			responseCache.endRevalidation(entry);
+		}
+	}
+	
+	private void sendCached(RequestImpl request, ResponseImpl response, ResponseCache.Entry entry) {
+		response.status(entry.status());
+		entry.headers().forEach(response::header);
+		byte[] content = entry.content();
+		if (entry.gzipContent() != null && isAcceptEncoding(request.headers(ACCEPT_ENCODING), GZIP)) {
+			content = entry.gzipContent();
+			response.header(CONTENT_ENCODING, GZIP);
+			response.compression(false);
+		}
+		response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+		response.body(Unpooled.wrappedBuffer(content));
+	}
+	
+	private void cacheResponse(RequestImpl request, ResponseImpl response, Route route) throws Exception {
+		Object body = response.body();
+		if (response.status() != 200 ||
+				response.hasCookies() ||
+				response.streaming() ||
+				response.transformer() == null ||
+				body instanceof CompletionStage)
+			return;
+		byte[] content = (body == null) ? new byte[0] : response.transformer().serialize(body);
+		responseCache.put(
+				ResponseCache.key(request, route.cachePolicy()),
+				request.pathInfo(),
+				route.cachePolicy(),
+				response.status(),
+				response.headers(),
+				content);
+		response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+		response.body(Unpooled.wrappedBuffer(content));
+	}
+	
 	private boolean processStaticResources(
 			RequestImpl request,
 			ResponseImpl response,
 			HttpMethod requestMethod) throws IOException {
 		if (!isEqualHttpMethod(requestMethod, GET))
 			return false;
+		boolean acceptGzip = isAcceptEncoding(request.headers(ACCEPT_ENCODING), GZIP);
 		if (this.location != null) {
 			StaticResource resource = this.location.getClassResource(request.pathInfo());
 			if (resource.stream() != null) {
-				response.inputStream(resource.stream());
-				response.header(CONTENT_TYPE, mimeType(resource.fullPath(), mimeTypes));
+				String mimeType = mimeType(resource.fullPath(), mimeTypes);
+				String etag = entityTags.classResource(this.location, resource.fullPath());
+				response.header(CONTENT_TYPE, mimeType);
+				response.header(VARY, ACCEPT_ENCODING);
+				cacheHeaders(response, this.location.cachePolicy(request.pathInfo()));
+				String notModifiedTag = notModifiedTag(request, etag, null, 0);
+				if (notModifiedTag != null) {
+					resource.stream().close();
+					notModified(response, notModifiedTag);
+					return true;
+				}
+				List<ByteRange> ranges = requestedRanges(request, resource.length(), etag, null);
+				if (ranges != null) {
+					response.header(ETAG, etag);
+					partialContent(response, ranges, resource.length());
+					if (ranges.isEmpty())
+						resource.stream().close();
+					else
+						response.inputStream(resource.stream());
+					return true;
+				}
+				byte[] compressed = (acceptGzip) ?
+					precompressed.classResource(this.location,
+							resource.fullPath(),
+							compressionPolicy.isCompressibleType(mimeType)) : null;
+				if (compressed != null) {
+					resource.stream().close();
+					response.header(CONTENT_ENCODING, GZIP);
+					response.header(ETAG, EntityTags.variant(etag, GZIP));
+					response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+					response.body(compressed);
+				} else {
+					if (resource.length() >= 0)
+						response.header(ACCEPT_RANGES, BYTES_UNIT);
+					response.header(ETAG, etag);
+					response.inputStream(resource.stream());
+				}
 				return true;
 			}
 		}
 		if (this.externalLocation != null) {
-			StaticResource resource = this.externalLocation.getFileResource(request.pathInfo());
-			if (resource.stream() == null) return false;
-			File file = new File(resource.fullPath());
-			String ifModifiedSince = request.headers(IF_MODIFIED_SINCE);
-			if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
-				long ifModifiedSinceDateSeconds =
-					ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
-				long fileLastModifiedSeconds = file.lastModified() / 1000;
-				if (ifModifiedSinceDateSeconds == fileLastModifiedSeconds) {
-					response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
-					response.status(304);
-					return true;
+			FileMetadata file = this.externalLocation.getFileMetadata(request.pathInfo(), mimeTypes);
+			if (!file.exists()) return false;
+			String etag = entityTags.fileResource(file);
+			response.header(CONTENT_TYPE, file.mimeType());
+			response.header(VARY, ACCEPT_ENCODING);
+			cacheHeaders(response, this.externalLocation.cachePolicy(request.pathInfo()));
+			response.header(LAST_MODIFIED, file.lastModifiedHeader());
+			String notModifiedTag = notModifiedTag(request, etag, file.lastModifiedHeader(), file.lastModified());
+			if (notModifiedTag != null) {
+				notModified(response, notModifiedTag);
+				return true;
+			}
+			List<ByteRange> ranges = requestedRanges(request, file.length(), etag, file.lastModifiedHeader());
+			if (ranges != null) {
+				response.header(ETAG, etag);
+				partialContent(response, ranges, file.length());
+				if (!ranges.isEmpty()) {
+					response.file(file.file(), file.length());
+					response.mappedFile(mappedFiles, file);
 				}
+			} else if (acceptGzip && sendCompressedFile(file, response)) {
+				response.header(ETAG, EntityTags.variant(etag, GZIP));
+			} else {
+				response.header(ACCEPT_RANGES, BYTES_UNIT);
+				response.header(ETAG, etag);
+				if (!acceptGzip || !compressionPolicy.isCompressible(file.mimeType(), file.length()))
+					response.compression(false);
+				response.file(file.file(), file.length());
+				response.mappedFile(mappedFiles, file);
 			}
-			response.inputStream(resource.stream());
-			response.header(CONTENT_TYPE, mimeType(resource.fullPath(), mimeTypes));
+			return true;
+		}
+		return false;
+	}
+	
+	private void cacheHeaders(ResponseImpl response, CachePolicy policy) {
+		response.header(CACHE_CONTROL, policy.cacheControl());
+		if (policy.maxAge() > 0) {
 			final String cacheExpires =
-				DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(HTTP_CACHE_SECONDS));
+				DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(policy.maxAge()));
 			response.header(EXPIRES, cacheExpires);
-			response.header(CACHE_CONTROL, "private, max-age=" + HTTP_CACHE_SECONDS);
-			final String lastModified =
-				DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(file.lastModified()), ZoneId.of("GMT")));
-			response.header(LAST_MODIFIED, lastModified);
+		}
+	}
+	
+	private String notModifiedTag(
+			RequestImpl request,
+			String etag,
+			String lastModifiedHeader,
+			long lastModified) {
+		String ifNoneMatch = request.headers(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			return EntityTags.match(ifNoneMatch,
+				etag,
+				EntityTags.variant(etag, GZIP),
+				EntityTags.variant(etag, DEFLATE));
+		}
+		String ifModifiedSince = request.headers(IF_MODIFIED_SINCE);
+		if (lastModifiedHeader == null || ifModifiedSince == null || ifModifiedSince.isEmpty())
+			return null;
+		if (ifModifiedSince.equals(lastModifiedHeader)) return etag;
+		try {
+			long ifModifiedSinceDateSeconds =
+				ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+			return (lastModified / 1000 <= ifModifiedSinceDateSeconds) ? etag : null;
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+	
+	private void notModified(ResponseImpl response, String etag) {
+		response.header(ETAG, etag);
+		response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+		response.status(304);
+	}
+	
+	private List<ByteRange> requestedRanges(
+			RequestImpl request,
+			long length,
+			String etag,
+			String lastModifiedHeader) {
+		String range = request.headers(RANGE);
+		if (range == null) return null;
+		String ifRange = request.headers(IF_RANGE);
+		if (ifRange != null) {
+			ifRange = ifRange.trim();
+			if (!ifRange.equals(etag) && !ifRange.equals(lastModifiedHeader)) return null;
+		}
+		return ByteRange.parse(range, length);
+	}
+	
+	private void partialContent(ResponseImpl response, List<ByteRange> ranges, long length) {
+		response.compression(false);
+		if (ranges.isEmpty()) {
+			response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+			response.header(CONTENT_RANGE, ByteRange.unsatisfiedContentRange(length));
+			response.status(416);
+			return;
+		}
+		response.status(206);
+		response.ranges(ranges, length);
+	}
+	
+	private boolean sendCompressedFile(
+			FileMetadata file,
+			ResponseImpl response) throws IOException {
+		FileMetadata variant = this.externalLocation.getVariantFileMetadata(file, GZIP_EXTENSION);
+		if (variant.exists()) {
+			response.header(CONTENT_ENCODING, GZIP);
+			response.file(variant.file(), variant.length());
 			return true;
 		}
-		return false;
+		byte[] compressed = precompressed.fileResource(file,
+				compressionPolicy.isCompressible(file.mimeType(), file.length()));
+		if (compressed == null) return false;
+		response.header(CONTENT_ENCODING, GZIP);
+		response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+		response.body(compressed);
+		return true;
 	}
 }
@@ -0,0 +1,128 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
+
+public class EntityTags {
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int TAG_BYTES = 16;
+	private static final int DEFAULT_MAX_ENTRIES = 8192;
+	private static final int BUFFER_SIZE = 1024 * 8;
+	private static final String CLASS_RESOURCE_PREFIX = "classpath:";
+	private static final String ANY = "*";
+	private static final String WEAK_PREFIX = "W/";
+
+	private final Map<String, String> entries;
+
+	public EntityTags(int maxEntries) {
+		entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public EntityTags() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public String classResource(StaticResourceLocation location, String fullPath) throws IOException {
+		String key = CLASS_RESOURCE_PREFIX+fullPath;
+		String tag;
+		synchronized (entries) {
+			tag = entries.get(key);
+		}
+		if (tag == null) {
+			InputStream stream = location.classResourceStream(fullPath);
+			if (stream == null) return null;
+			tag = tag(stream);
+			synchronized (entries) {
+				entries.put(key, tag);
+			}
+		}
+		return tag;
+	}
+
+	public String fileResource(FileMetadata file) {
+		StringBuilder tag = new StringBuilder("\"")
+			.append(Long.toHexString(file.length()))
+			.append('-')
+			.append(Long.toHexString(file.lastModified()));
+		if (file.fileKey() != null)
+			tag.append('-').append(Integer.toHexString(file.fileKey().hashCode()));
+		return tag.append('"').toString();
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public static String variant(String tag, String encoding) {
+		return tag.substring(0, tag.length()-1)+"-"+encoding+"\"";
+	}
+
+	public static boolean matches(String header, String... tags) {
+		return match(header, tags) != null;
+	}
+
+	public static String match(String header, String... tags) {
+		if (header == null || tags.length == 0) return null;
+		for (String candidate : header.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.equals(ANY)) return tags[0];
+			if (candidate.startsWith(WEAK_PREFIX))
+				candidate = candidate.substring(WEAK_PREFIX.length());
+			for (String tag : tags)
+				if (candidate.equals(tag)) return tag;
+		}
+		return null;
+	}
+
+	private String tag(InputStream stream) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int n;
+			while ((n = stream.read(buffer)) != -1)
+				digest.update(buffer, 0, n);
+			byte[] hash = digest.digest();
+			return "\""+Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, TAG_BYTES))+"\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		} finally {
+			stream.close();
+		}
+	}
+}
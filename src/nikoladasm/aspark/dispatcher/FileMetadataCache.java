@@ -0,0 +1,261 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+public class FileMetadataCache {
+
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.dispatcher.FileMetadataCache.class);
+
+	private static final int DEFAULT_MAX_ENTRIES = 8192;
+	private static final int DEFAULT_MAX_WATCHED_DIRECTORIES = 1024;
+	private static final String WATCHER_THREAD_NAME = "aspark-file-watcher";
+
+	public static class FileMetadata {
+		private Path path;
+		private File file;
+		private boolean exists;
+		private long length;
+		private long lastModified;
+		private Object fileKey;
+		private String mimeType;
+		private String lastModifiedHeader;
+
+		public FileMetadata(Path path, File file, String mimeType) {
+			this.path = path;
+			this.file = file;
+			exists = file != null;
+			if (exists) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+					length = attributes.size();
+					lastModified = attributes.lastModifiedTime().toMillis();
+					fileKey = attributes.fileKey();
+				} catch (IOException e) {
+					length = file.length();
+					lastModified = file.lastModified();
+				}
+				this.mimeType = mimeType;
+				lastModifiedHeader =
+					DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneId.of("GMT")));
+			}
+		}
+
+		public Path path() {
+			return path;
+		}
+
+		public File file() {
+			return file;
+		}
+
+		public boolean exists() {
+			return exists;
+		}
+
+		public long length() {
+			return length;
+		}
+
+		public long lastModified() {
+			return lastModified;
+		}
+
+		public Object fileKey() {
+			return fileKey;
+		}
+
+		public String mimeType() {
+			return mimeType;
+		}
+
+		public String lastModifiedHeader() {
+			return lastModifiedHeader;
+		}
+	}
+
+	private final Map<String, FileMetadata> entries;
+	private final Map<Path, WatchKey> watchedDirectories;
+	private final AtomicLong generation;
+	private volatile WatchService watchService;
+
+	public FileMetadataCache(int maxEntries, int maxWatchedDirectories) {
+		entries = new LinkedHashMap<String, FileMetadata>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FileMetadata> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		watchedDirectories = new LinkedHashMap<Path, WatchKey>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, WatchKey> eldest) {
+				if (size() <= maxWatchedDirectories) return false;
+				eldest.getValue().cancel();
+				invalidate(eldest.getKey(), eldest.getKey());
+				return true;
+			}
+		};
+		generation = new AtomicLong();
+	}
+
+	public FileMetadataCache(int maxEntries) {
+		this(maxEntries, DEFAULT_MAX_WATCHED_DIRECTORIES);
+	}
+
+	public FileMetadataCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public FileMetadata get(String fullPath, Function<String, FileMetadata> loader) {
+		FileMetadata metadata;
+		synchronized (entries) {
+			metadata = entries.get(fullPath);
+		}
+		if (metadata != null) return metadata;
+		boolean watched = watch(Paths.get(fullPath));
+		long loadGeneration = generation.get();
+		metadata = loader.apply(fullPath);
+		if (watched && loadGeneration == generation.get()) {
+			synchronized (entries) {
+				entries.put(fullPath, metadata);
+			}
+		}
+		return metadata;
+	}
+
+	public void invalidate() {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public synchronized void close() {
+		if (watchService == null) return;
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			LOG.warn("Could not close file watcher", e);
+		}
+		watchService = null;
+		watchedDirectories.clear();
+		invalidate();
+	}
+
+	private synchronized boolean watch(Path path) {
+		if (path.getParent() == null) return false;
+		register(path);
+		for (Path directory = path.getParent(); directory != null; directory = directory.getParent())
+			if (register(directory)) return true;
+		return false;
+	}
+
+	private boolean register(Path directory) {
+		if (watchedDirectories.get(directory) != null) return true;
+		try {
+			if (watchService == null) startWatcher();
+			WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			watchedDirectories.put(directory, key);
+			return true;
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			return false;
+		} catch (IOException e) {
+			LOG.warn("Could not watch directory "+directory, e);
+			return false;
+		}
+	}
+
+	private synchronized void unregister(Path directory, WatchKey key) {
+		watchedDirectories.remove(directory, key);
+	}
+
+	private void startWatcher() throws IOException {
+		WatchService service = FileSystems.getDefault().newWatchService();
+		watchService = service;
+		Thread watcher = new Thread(() -> processEvents(service), WATCHER_THREAD_NAME);
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	private void processEvents(WatchService service) {
+		while (true) {
+			WatchKey key;
+			try {
+				key = service.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					invalidate();
+					continue;
+				}
+				invalidate(directory, directory.resolve((Path) event.context()));
+			}
+			if (!key.reset()) {
+				unregister(directory, key);
+				invalidate(directory, directory);
+			}
+		}
+	}
+
+	private void invalidate(Path directory, Path child) {
+		generation.incrementAndGet();
+		synchronized (entries) {
+			Iterator<FileMetadata> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				Path path = iterator.next().path();
+				if (path.equals(directory) || path.startsWith(child))
+					iterator.remove();
+			}
+		}
+	}
+}
@@ -27,18 +27,21 @@ public final class Filter {
 	private Boolean startWithWildcard;
 	private String acceptedType;
 	private FilterHandler handler;
+	private boolean nonBlocking;
 	
 	public Filter(
 			Pattern pathPattern,
 			Map<String, Integer> parameterNamesMap,
 			Boolean startWithWildcard,
 			String acceptedType,
-			FilterHandler handler) {
+			FilterHandler handler,
+			boolean nonBlocking) {
 		this.pathPattern = pathPattern;
 		this.parameterNamesMap = parameterNamesMap;
 		this.startWithWildcard = startWithWildcard;
 		this.acceptedType = acceptedType;
 		this.handler = handler;
+		this.nonBlocking = nonBlocking;
 	}
 
 	public Pattern pathPattern() {
@@ -60,4 +63,8 @@ public final class Filter {
 	public FilterHandler handler() {
 		return handler;
 	}
+
+	public boolean nonBlocking() {
+		return nonBlocking;
+	}
 }
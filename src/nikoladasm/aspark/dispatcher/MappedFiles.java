@@ -0,0 +1,157 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
+
+public class MappedFiles {
+
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.dispatcher.MappedFiles.class);
+
+	public static final long DEFAULT_MIN_FILE_SIZE = 1024 * 1024;
+	public static final long DEFAULT_MAX_TOTAL_SIZE = 512L * 1024 * 1024;
+
+	private static final int HOT_HITS = 3;
+	private static final int MAX_TRACKED_FILES = 4096;
+
+	private static class Entry {
+		private long lastModified;
+		private long length;
+		private AtomicInteger hits;
+		private volatile ByteBuffer buffer;
+		private volatile boolean evicted;
+
+		private Entry(long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+			hits = new AtomicInteger();
+		}
+	}
+
+	private final Map<String, Entry> entries;
+	private final AtomicLong totalSize;
+	private volatile boolean enabled;
+	private volatile long minFileSize;
+	private volatile long maxTotalSize;
+
+	public MappedFiles() {
+		entries = new ConcurrentHashMap<>();
+		totalSize = new AtomicLong();
+		minFileSize = DEFAULT_MIN_FILE_SIZE;
+		maxTotalSize = DEFAULT_MAX_TOTAL_SIZE;
+	}
+
+	public void enabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) clear();
+	}
+
+	public boolean enabled() {
+		return enabled;
+	}
+
+	public void minFileSize(long minFileSize) {
+		this.minFileSize = minFileSize;
+	}
+
+	public long minFileSize() {
+		return minFileSize;
+	}
+
+	public void maxTotalSize(long maxTotalSize) {
+		this.maxTotalSize = maxTotalSize;
+	}
+
+	public long maxTotalSize() {
+		return maxTotalSize;
+	}
+
+	public long totalSize() {
+		return totalSize.get();
+	}
+
+	public ByteBuffer get(FileMetadata file) {
+		if (!enabled || file.length() < minFileSize || file.length() > Integer.MAX_VALUE)
+			return null;
+		String key = file.file().getPath();
+		Entry entry = entries.get(key);
+		if (entry == null ||
+				entry.lastModified != file.lastModified() ||
+				entry.length != file.length()) {
+			if (entries.size() >= MAX_TRACKED_FILES) clear();
+			Entry fresh = new Entry(file.lastModified(), file.length());
+			evict(entries.put(key, fresh));
+			entry = fresh;
+		}
+		ByteBuffer buffer = entry.buffer;
+		if (buffer != null) return buffer.duplicate();
+		if (entry.evicted || entry.hits.incrementAndGet() < HOT_HITS) return null;
+		return map(entry, file);
+	}
+
+	public void clear() {
+		entries.values().forEach(this::evict);
+		entries.clear();
+	}
+
+	private ByteBuffer map(Entry entry, FileMetadata file) {
+		synchronized (entry) {
+			if (entry.buffer != null) return entry.buffer.duplicate();
+			if (entry.evicted) return null;
+			if (totalSize.addAndGet(entry.length) > maxTotalSize) {
+				totalSize.addAndGet(-entry.length);
+				return null;
+			}
+			try (FileChannel channel = FileChannel.open(file.file().toPath(), READ)) {
+				entry.buffer = channel.map(READ_ONLY, 0, entry.length);
+			} catch (IOException e) {
+				totalSize.addAndGet(-entry.length);
+				entry.evicted = true;
+				LOG.warn("Could not map file "+file.file(), e);
+				return null;
+			}
+			return entry.buffer.duplicate();
+		}
+	}
+
+	private void evict(Entry entry) {
+		if (entry == null) return;
+		synchronized (entry) {
+			if (entry.evicted) return;
+			entry.evicted = true;
+			if (entry.buffer != null) {
+				totalSize.addAndGet(-entry.length);
+				entry.buffer = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
+
+public class PrecompressedResources {
+
+	public static final String GZIP = "gzip";
+	public static final String GZIP_EXTENSION = ".gz";
+
+	private static final int DEFAULT_MAX_RESOURCE_SIZE = 1024 * 1024;
+	private static final long DEFAULT_MAX_TOTAL_SIZE = 32L * 1024 * 1024;
+	private static final int BUFFER_SIZE = 1024 * 8;
+	private static final byte[] NOT_COMPRESSED = new byte[0];
+
+	private static class Entry {
+		private long lastModified;
+		private long length;
+		private byte[] content;
+
+		private Entry(long lastModified, long length, byte[] content) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.content = content;
+		}
+	}
+
+	private final Map<String, Entry> entries;
+	private final int maxResourceSize;
+	private final long maxTotalSize;
+	private final AtomicLong totalSize;
+
+	public PrecompressedResources(int maxResourceSize, long maxTotalSize) {
+		this.maxResourceSize = maxResourceSize;
+		this.maxTotalSize = maxTotalSize;
+		entries = new ConcurrentHashMap<>();
+		totalSize = new AtomicLong();
+	}
+
+	public PrecompressedResources() {
+		this(DEFAULT_MAX_RESOURCE_SIZE, DEFAULT_MAX_TOTAL_SIZE);
+	}
+
+	public byte[] classResource(StaticResourceLocation location, String fullPath, boolean compressible) throws IOException {
+		Entry entry = entries.get(fullPath);
+		if (entry == null) {
+			byte[] content = NOT_COMPRESSED;
+			InputStream stream = location.classResourceStream(fullPath+GZIP_EXTENSION);
+			if (stream != null) {
+				content = read(stream);
+			} else if (compressible) {
+				stream = location.classResourceStream(fullPath);
+				if (stream != null) content = gzip(stream);
+			}
+			entry = put(fullPath, new Entry(0, 0, content));
+		}
+		return (entry.content.length == 0) ? null : entry.content;
+	}
+
+	public byte[] fileResource(FileMetadata file, boolean compressible) throws IOException {
+		String key = file.file().getPath();
+		Entry entry = entries.get(key);
+		if (entry == null ||
+				entry.lastModified != file.lastModified() ||
+				entry.length != file.length()) {
+			byte[] content = NOT_COMPRESSED;
+			if (compressible && file.length() <= maxResourceSize)
+				content = gzip(new FileInputStream(file.file()));
+			entry = put(key, new Entry(file.lastModified(), file.length(), content));
+		}
+		return (entry.content.length == 0) ? null : entry.content;
+	}
+
+	public void clear() {
+		entries.clear();
+		totalSize.set(0);
+	}
+
+	private Entry put(String key, Entry entry) {
+		Entry cached = entry;
+		if (totalSize.addAndGet(entry.content.length) > maxTotalSize) {
+			totalSize.addAndGet(-entry.content.length);
+			cached = new Entry(entry.lastModified, entry.length, NOT_COMPRESSED);
+		}
+		Entry previous = entries.put(key, cached);
+		if (previous != null)
+			totalSize.addAndGet(-previous.content.length);
+		return entry;
+	}
+
+	private byte[] read(InputStream stream) throws IOException {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			if (copy(stream, os) > maxResourceSize) return NOT_COMPRESSED;
+			return os.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private byte[] gzip(InputStream stream) throws IOException {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			GZIPOutputStream gos = new GZIPOutputStream(os);
+			long size = copy(stream, gos);
+			gos.close();
+			if (size > maxResourceSize || os.size() >= size) return NOT_COMPRESSED;
+			return os.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private long copy(InputStream input, OutputStream output) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long count = 0;
+		int n = 0;
+		while ((n = input.read(buffer)) != -1 && count <= maxResourceSize) {
+			output.write(buffer, 0, n);
+			count += n;
+		}
+		return count;
+	}
+}
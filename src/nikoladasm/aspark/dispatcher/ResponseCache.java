@@ -0,0 +1,203 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.dispatcher;
+
+import static io.netty.handler.codec.http.HttpHeaders.Names.ACCEPT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import nikoladasm.aspark.RequestImpl;
+import nikoladasm.aspark.ResponseCachePolicy;
+import nikoladasm.aspark.ResponseHeaders;
+
+public class ResponseCache {
+
+	public static final long DEFAULT_MAX_TOTAL_SIZE = 64L * 1024 * 1024;
+
+	private static final char KEY_SEPARATOR = '\n';
+
+	public static class Entry {
+		private final String path;
+		private final int status;
+		private final ResponseHeaders headers;
+		private final byte[] content;
+		private final byte[] gzipContent;
+		private final long expires;
+		private final long staleUntil;
+		private final long size;
+		private final AtomicBoolean revalidating;
+
+		private Entry(String path,
+				ResponseCachePolicy policy,
+				int status,
+				ResponseHeaders headers,
+				byte[] content,
+				byte[] gzipContent) {
+			this.path = path;
+			this.status = status;
+			this.headers = new ResponseHeaders();
+			headers.forEach(this.headers::put);
+			this.content = content;
+			this.gzipContent = gzipContent;
+			long now = System.nanoTime();
+			expires = now + TimeUnit.SECONDS.toNanos(policy.ttl());
+			staleUntil = expires + TimeUnit.SECONDS.toNanos(policy.staleWhileRevalidate());
+			size = content.length + ((gzipContent == null) ? 0 : gzipContent.length);
+			revalidating = new AtomicBoolean();
+		}
+
+		public int status() {
+			return status;
+		}
+
+		public ResponseHeaders headers() {
+			return headers;
+		}
+
+		public byte[] content() {
+			return content;
+		}
+
+		public byte[] gzipContent() {
+			return gzipContent;
+		}
+	}
+
+	private final Map<String, Entry> entries;
+	private final AtomicLong totalSize;
+	private volatile long maxTotalSize;
+
+	public ResponseCache() {
+		entries = new ConcurrentHashMap<>();
+		totalSize = new AtomicLong();
+		maxTotalSize = DEFAULT_MAX_TOTAL_SIZE;
+	}
+
+	public void maxTotalSize(long maxTotalSize) {
+		this.maxTotalSize = maxTotalSize;
+		if (totalSize.get() > maxTotalSize) evict();
+	}
+
+	public long maxTotalSize() {
+		return maxTotalSize;
+	}
+
+	public long totalSize() {
+		return totalSize.get();
+	}
+
+	public static String key(RequestImpl request, ResponseCachePolicy policy) {
+		StringBuilder sb = new StringBuilder(request.pathInfo());
+		for (String name : policy.queryParams()) {
+			sb.append(KEY_SEPARATOR).append(name).append('=');
+			String[] values = request.queryParamsValues(name);
+			if (values != null)
+				for (String value : values) sb.append(value).append('&');
+		}
+		String accept = request.headers(ACCEPT);
+		sb.append(KEY_SEPARATOR);
+		if (accept != null) sb.append(accept);
+		return sb.toString();
+	}
+
+	public Entry lookup(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null) return null;
+		long now = System.nanoTime();
+		if (now - entry.expires < 0) return entry;
+		if (now - entry.staleUntil >= 0) {
+			remove(key, entry);
+			return null;
+		}
+		return entry;
+	}
+
+	public boolean startRevalidation(Entry entry) {
+		return System.nanoTime() - entry.expires >= 0 &&
+			entry.revalidating.compareAndSet(false, true);
+	}
+
+	public void endRevalidation(Entry entry) {
+		entry.revalidating.set(false);
+	}
+
+	public Entry put(String key,
+			String path,
+			ResponseCachePolicy policy,
+			int status,
+			ResponseHeaders headers,
+			byte[] content) throws IOException {
+		byte[] gzipContent = (policy.precompressed()) ? gzip(content) : null;
+		Entry entry = new Entry(path, policy, status, headers, content, gzipContent);
+		if (entry.size > maxTotalSize) {
+			remove(key, entries.get(key));
+			return entry;
+		}
+		entries.compute(key, (k, previous) -> {
+			if (previous != null) totalSize.addAndGet(-previous.size);
+			totalSize.addAndGet(entry.size);
+			return entry;
+		});
+		if (totalSize.get() > maxTotalSize) evict();
+		return entry;
+	}
+
+	public void invalidate() {
+		entries.forEach(this::remove);
+	}
+
+	public void invalidate(String path) {
+		entries.forEach((key, entry) -> {
+			if (entry.path.equals(path)) remove(key, entry);
+		});
+	}
+
+	private void evict() {
+		long now = System.nanoTime();
+		entries.forEach((key, entry) -> {
+			if (now - entry.staleUntil >= 0) remove(key, entry);
+		});
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (totalSize.get() > maxTotalSize && iterator.hasNext()) {
+			Map.Entry<String, Entry> next = iterator.next();
+			remove(next.getKey(), next.getValue());
+		}
+	}
+
+	private void remove(String key, Entry entry) {
+		if (entry != null && entries.remove(key, entry))
+			totalSize.addAndGet(-entry.size);
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(content);
+		}
+		return out.toByteArray();
+	}
+}
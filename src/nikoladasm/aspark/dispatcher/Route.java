@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import nikoladasm.aspark.HttpMethod;
+import nikoladasm.aspark.ResponseCachePolicy;
 import nikoladasm.aspark.ResponseTransformer;
 
 public final class Route {
@@ -32,6 +33,8 @@ public final class Route {
 	private String acceptedType;
 	private RouteHandler handler;
 	private ResponseTransformer responseTransformer;
+	private boolean nonBlocking;
+	private ResponseCachePolicy cachePolicy;
 	
 	public Route(HttpMethod httpMethod,
 			Pattern pathPattern,
@@ -39,7 +42,9 @@ public final class Route {
 			Boolean startWithWildcard,
 			String acceptedType,
 			RouteHandler handler,
-			ResponseTransformer responseTransformer) {
+			ResponseTransformer responseTransformer,
+			boolean nonBlocking,
+			ResponseCachePolicy cachePolicy) {
 		this.httpMethod = httpMethod;
 		this.pathPattern = pathPattern;
 		this.parameterNamesMap = parameterNamesMap;
@@ -47,6 +52,8 @@ public final class Route {
 		this.acceptedType = acceptedType;
 		this.handler = handler;
 		this.responseTransformer = responseTransformer;
+		this.nonBlocking = nonBlocking;
+		this.cachePolicy = cachePolicy;
 	}
 
 	public HttpMethod httpMethod() {
@@ -76,4 +83,12 @@ public final class Route {
 	public ResponseTransformer responseTransformer() {
 		return responseTransformer;
 	}
+	
+	public boolean nonBlocking() {
+		return nonBlocking;
+	}
+	
+	public ResponseCachePolicy cachePolicy() {
+		return cachePolicy;
+	}
 }
@@ -23,6 +23,8 @@ public class RoutesList implements Iterable<Route> {
 	public static final Function<Route,Boolean> DEFAULT_FILTER = (filter) -> true;
 
 	private ConcurrentLinkedQueue<Route> routes;
+	private volatile boolean hasNonBlocking;
+	private volatile boolean hasCached;
 	
 	public static FilterConfig createConfig(String path, String acceptType, HttpMethod requestMethod) {
 		FilterConfig config = new FilterConfig();
@@ -47,10 +49,22 @@ public class RoutesList implements Iterable<Route> {
 	
 	public void addLast(Route route) {
 		routes.add(route);
+		if (route.nonBlocking()) hasNonBlocking = true;
+		if (route.cachePolicy() != null) hasCached = true;
 	}
 
 	public void clear() {
 		routes.clear();
+		hasNonBlocking = false;
+		hasCached = false;
+	}
+	
+	public boolean hasNonBlocking() {
+		return hasNonBlocking;
+	}
+	
+	public boolean hasCached() {
+		return hasCached;
 	}
 	
 	@Override
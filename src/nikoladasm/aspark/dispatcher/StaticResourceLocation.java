@@ -23,10 +23,20 @@ import static nikoladasm.aspark.ASparkUtil.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
 
 import nikoladasm.aspark.ACLEntry;
+import nikoladasm.aspark.CachePolicy;
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
 
 public class StaticResourceLocation {
 
@@ -35,10 +45,16 @@ public class StaticResourceLocation {
 	public static class StaticResource {
 		private InputStream stream;
 		private String fullPath;
+		private long length;
 		
-		public StaticResource(InputStream stream, String fullPath) {
+		public StaticResource(InputStream stream, String fullPath, long length) {
 			this.stream = stream;
 			this.fullPath = fullPath;
+			this.length = length;
+		}
+		
+		public StaticResource(InputStream stream, String fullPath) {
+			this(stream, fullPath, -1);
 		}
 		
 		public InputStream stream() {
@@ -48,18 +64,40 @@ public class StaticResourceLocation {
 		public String fullPath() {
 			return fullPath;
 		}
+		
+		public long length() {
+			return length;
+		}
+	}
+	
+	private static class CachePolicyEntry {
+		private Pattern pathPattern;
+		private CachePolicy policy;
+		
+		private CachePolicyEntry(Pattern pathPattern, CachePolicy policy) {
+			this.pathPattern = pathPattern;
+			this.policy = policy;
+		}
 	}
 	
-	private ConcurrentLinkedQueue<ACLEntry> acl;
+	private List<ACLEntry> acl;
+	private volatile ACLMatcher aclMatcher;
+	private ConcurrentLinkedQueue<CachePolicyEntry> cachePolicies;
+	private volatile CachePolicy cachePolicy;
 
 	private String folder;
 	private String[] indexFiles;
+	private FileMetadataCache metadataCache;
 	
 	public StaticResourceLocation(String folder, String[] indexFiles) {
 		String pathToUse = sanitizePath(folder);
 		this.folder = pathToUse;
 		this.indexFiles = indexFiles;
-		acl = new ConcurrentLinkedQueue<>();
+		acl = new ArrayList<>();
+		aclMatcher = new ACLMatcher(acl);
+		cachePolicies = new ConcurrentLinkedQueue<>();
+		cachePolicy = CachePolicy.DEFAULT;
+		metadataCache = new FileMetadataCache();
 	}
 	
 	public String folder() {
@@ -70,17 +108,28 @@ public class StaticResourceLocation {
 		return indexFiles;
 	}
 
-	public void aclEntry(ACLEntry aclEntry) {
+	public synchronized void aclEntry(ACLEntry aclEntry) {
 		acl.add(aclEntry);
+		aclMatcher = new ACLMatcher(acl);
+		metadataCache.invalidate();
+	}
+	
+	public void cachePolicy(CachePolicy cachePolicy) {
+		this.cachePolicy = cachePolicy;
+	}
+	
+	public void cachePolicy(Pattern pathPattern, CachePolicy cachePolicy) {
+		cachePolicies.add(new CachePolicyEntry(pathPattern, cachePolicy));
+	}
+	
+	public CachePolicy cachePolicy(String path) {
+		for (CachePolicyEntry entry : cachePolicies)
+			if (entry.pathPattern.matcher(path).matches()) return entry.policy;
+		return cachePolicy;
 	}
 	
 	private boolean isAllowedExtension(String path) {
-		if (acl.size() == 0) return true;
-		for (ACLEntry entry : acl) {
-			Boolean allowed = entry.isAllowed(path);
-			if (allowed != null) return allowed;
-		}
-		return false;
+		return aclMatcher.isAllowed(path);
 	}
 	
 	private boolean isLikeDirectory(String path) {
@@ -90,23 +139,33 @@ public class StaticResourceLocation {
 		return lastPointPosition < 0;
 	}
 	
-	private InputStream resourceStream(String path) {
+	public InputStream classResourceStream(String path) {
 		InputStream input = this.getClass().getResourceAsStream(path);
 		if (input != null) return input;
 		return this.getClass().getClassLoader().getResourceAsStream(path);
 	}
 	
+	private URL classResourceUrl(String path) {
+		URL url = this.getClass().getResource(path);
+		if (url != null) return url;
+		return this.getClass().getClassLoader().getResource(path);
+	}
+	
 	private StaticResource resource(String path) {
-		InputStream input = resourceStream(path);
-		if (input != null) return new StaticResource(input, path);
-		return null;
+		URL url = classResourceUrl(path);
+		if (url == null) return null;
+		try {
+			URLConnection connection = url.openConnection();
+			return new StaticResource(connection.getInputStream(), path, connection.getContentLengthLong());
+		} catch (IOException e) {
+			return null;
+		}
 	}
 	
 	private StaticResource resource(String path, String[] indexFiles) {
 		for (int i=0; i<indexFiles.length; i++) {
-			String fName = path+"/"+indexFiles[i];
-			InputStream input = resourceStream(fName);
-			if (input != null) return new StaticResource(input, fName);
+			StaticResource resource = resource(path+"/"+indexFiles[i]);
+			if (resource != null) return resource;
 		}
 		return null;
 	}
@@ -114,7 +173,7 @@ public class StaticResourceLocation {
 	public StaticResource getClassResource(String path) {
 		String fullPath = folder+path;
 		if (!isAllowedExtension(fullPath))
-			new StaticResource(null, "");
+			return new StaticResource(null, "");
 		if (isLikeDirectory(fullPath)) {
 			StaticResource resource = resource(fullPath, indexFiles);
 			if (resource != null) return resource;
@@ -132,7 +191,7 @@ public class StaticResourceLocation {
 	public StaticResource getFileResource(String path) {
 		String fullPath = folder+path;
 		if (!isAllowedExtension(fullPath))
-			new StaticResource(null, "");
+			return new StaticResource(null, "");
 		File file;
 		file = new File(fullPath);
 		if (file.exists() && !file.isDirectory()) {
@@ -151,4 +210,38 @@ public class StaticResourceLocation {
 		}
 		return new StaticResource(null, "");	
 	}
+	
+	public FileMetadata getFileMetadata(String path, Properties mimeTypes) {
+		return metadataCache.get(folder+path, fullPath -> loadFileMetadata(fullPath, mimeTypes));
+	}
+	
+	public FileMetadata getVariantFileMetadata(FileMetadata file, String extension) {
+		return metadataCache.get(file.file().getPath()+extension, fullPath -> {
+			File variant = new File(fullPath);
+			return new FileMetadata(Paths.get(fullPath),
+					(variant.exists() && !variant.isDirectory()) ? variant : null,
+					file.mimeType());
+		});
+	}
+	
+	private FileMetadata loadFileMetadata(String fullPath, Properties mimeTypes) {
+		File file = (isAllowedExtension(fullPath)) ? file(fullPath) : null;
+		return new FileMetadata(Paths.get(fullPath),
+				file,
+				(file == null) ? null : mimeType(file.getPath(), mimeTypes));
+	}
+	
+	private File file(String fullPath) {
+		File file = new File(fullPath);
+		if (file.exists() && !file.isDirectory()) return file;
+		for (int i=0; i<indexFiles.length; i++) {
+			file = new File(fullPath+"/"+indexFiles[i]);
+			if (file.exists() && !file.isDirectory()) return file;
+		}
+		return null;
+	}
+	
+	public void close() {
+		metadataCache.close();
+	}
 }
@@ -19,19 +19,22 @@
 package nikoladasm.aspark.server;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import nikoladasm.aspark.CompressionPolicy;
 import nikoladasm.aspark.ExceptionMap;
 import nikoladasm.aspark.WebSocketMap;
 import nikoladasm.aspark.dispatcher.Dispatcher;
@@ -50,16 +53,22 @@ public class ASparkServer {
 	private SSLContext sslContext;
 	private CountDownLatch latch;
 	private String serverName;
+	private CompressionPolicy compressionPolicy;
+	private boolean nativeTransport;
+	private int acceptors;
+	private ServerOptions options;
 	
+	private volatile List<Channel> channels;
 	private volatile Channel channel;
 	private volatile EventLoopGroup bossGroup;
 	private volatile EventLoopGroup workerGroup;
 	private volatile boolean started;
+	private volatile ChannelGroup connections;
 	
-	private Executor pool;
+	private RequestExecutors pool;
 
 	public ASparkServer(CountDownLatch latch,
-			Executor pool,
+			RequestExecutors pool,
 			String ipAddress,
 			int port,
 			Dispatcher dispatcher,
@@ -78,10 +87,13 @@ public class ASparkServer {
 		this.sslContext = sslContext;
 		this.maxContentLength = maxContentLength;
 		this.serverName = serverName;
+		compressionPolicy = new CompressionPolicy();
+		acceptors = 1;
+		options = new ServerOptions();
 	}
 	
 	public ASparkServer(CountDownLatch latch,
-			Executor pool,
+			RequestExecutors pool,
 			String ipAddress,
 			int port,
 			Dispatcher dispatcher,
@@ -103,7 +115,7 @@ public class ASparkServer {
 	}
 	
 	public ASparkServer(CountDownLatch latch,
-			Executor pool,
+			RequestExecutors pool,
 			String ipAddress,
 			int port,
 			Dispatcher dispatcher,
@@ -126,7 +138,7 @@ public class ASparkServer {
 	}
 	
 	public ASparkServer(CountDownLatch latch,
-			Executor pool,
+			RequestExecutors pool,
 			String ipAddress,
 			int port,
 			Dispatcher dispatcher,
@@ -146,13 +158,36 @@ public class ASparkServer {
 				serverName);
 	}
 	
+	public void compressionPolicy(CompressionPolicy compressionPolicy) {
+		this.compressionPolicy = compressionPolicy;
+	}
+	
+	public void nativeTransport(boolean nativeTransport) {
+		this.nativeTransport = nativeTransport;
+	}
+	
+	public void acceptors(int acceptors) {
+		this.acceptors = acceptors;
+	}
+	
+	public void options(ServerOptions options) {
+		this.options = options;
+	}
+	
 	public void start() {
-		bossGroup = new NioEventLoopGroup();
-		workerGroup = new NioEventLoopGroup();
+		Transport transport = Transport.select(nativeTransport);
+		int binds = (transport.supportsReusePort()) ? Math.max(1, acceptors) : 1;
+		if (binds < acceptors)
+			LOG.info("SO_REUSEPORT is not supported by the "+((transport.isNative()) ? "native" : "NIO")+" transport, using a single acceptor");
+		bossGroup = transport.eventLoopGroup(Math.max(binds, options.bossThreads()));
+		workerGroup = transport.eventLoopGroup(options.workerThreads());
+		connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 		try {
 			ServerBootstrap server = new ServerBootstrap();
+			transport.configure(server, binds > 1);
+			options.configure(server);
 			server.group(bossGroup, workerGroup)
-				.channel(NioServerSocketChannel.class)
+				.channel(transport.serverChannelClass())
 				.childHandler(new ServerInitializer(
 						sslContext,
 						maxContentLength,
@@ -162,17 +197,22 @@ public class ASparkServer {
 						exceptionMap,
 						webSockets,
 						serverName,
-						pool))
-				.option(ChannelOption.SO_BACKLOG, 1024)
+						compressionPolicy,
+						pool,
+						options,
+						connections))
 				.option(ChannelOption.SO_KEEPALIVE, true)
 				.option(ChannelOption.TCP_NODELAY, true)
 				.childOption(ChannelOption.SO_KEEPALIVE, true)
 				.childOption(ChannelOption.TCP_NODELAY, true);
-			channel =
-				server.bind(new InetSocketAddress(ipAddress, port)).sync().channel();
+			List<Channel> bound = new ArrayList<>();
+			for (int i=0; i<binds; i++)
+				bound.add(server.bind(new InetSocketAddress(ipAddress, port)).sync().channel());
+			channels = bound;
+			channel = bound.get(0);
 			started = true;
 			latch.countDown();
-			LOG.info("Netty server started");
+			LOG.info("Netty server started ("+((transport.isNative()) ? "epoll" : "nio")+", "+binds+" acceptor(s))");
 		} catch (InterruptedException e) {
 			LOG.error("Unexpected exception", e);
 			bossGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
@@ -188,7 +228,9 @@ public class ASparkServer {
 	
 	public void stop() {
 		if (channel == null) return;
-		channel.close().syncUninterruptibly();
+		for (Channel acceptor : channels)
+			acceptor.close().syncUninterruptibly();
+		drain();
 		bossGroup.shutdownGracefully();
 		workerGroup.shutdownGracefully();
 		bossGroup.terminationFuture().syncUninterruptibly();
@@ -197,6 +239,24 @@ public class ASparkServer {
 		LOG.info("Netty server stopped");
 	}
 	
+	private void drain() {
+		int timeout = options.drainTimeout();
+		if (timeout > 0 && !connections.isEmpty()) {
+			List<Channel> draining = new ArrayList<>(connections);
+			for (Channel connection : draining)
+				connection.pipeline().fireUserEventTriggered(ServerHandler.DRAIN_EVENT);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+			for (Channel connection : draining) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || !connection.closeFuture().awaitUninterruptibly(remaining, TimeUnit.NANOSECONDS)) {
+					LOG.info("Drain timeout expired, closing "+connections.size()+" connection(s)");
+					break;
+				}
+			}
+		}
+		connections.close().awaitUninterruptibly();
+	}
+	
 	public void await() {
 		if (channel == null) return;
 		try {
@@ -0,0 +1,101 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyLimiter {
+
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+
+	private static final double SHORT_WINDOW = 10;
+	private static final double LONG_WINDOW = 600;
+	private static final double RTT_TOLERANCE = 1.5;
+	private static final double SMOOTHING = 0.2;
+	private static final double MIN_GRADIENT = 0.5;
+	private static final double LONG_RTT_DRIFT = 2;
+	private static final double LONG_RTT_DECAY = 0.95;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final AtomicInteger inFlight;
+	private volatile int limit;
+	private double estimatedLimit;
+	private double shortRtt;
+	private double longRtt;
+
+	public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1 || maxLimit < minLimit)
+			throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		inFlight = new AtomicInteger();
+		estimatedLimit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+		limit = (int) estimatedLimit;
+	}
+
+	public ConcurrencyLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+	}
+
+	public boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+			if (current >= limit) return false;
+			if (inFlight.compareAndSet(current, current+1)) return true;
+		}
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public void release(long rttNanos, int inFlightAtStart) {
+		inFlight.decrementAndGet();
+		if (rttNanos > 0) sample(rttNanos, inFlightAtStart);
+	}
+
+	public int limit() {
+		return limit;
+	}
+
+	public int inFlight() {
+		return inFlight.get();
+	}
+
+	private synchronized void sample(long rtt, int inFlightAtStart) {
+		if (longRtt == 0) {
+			shortRtt = rtt;
+			longRtt = rtt;
+		} else {
+			shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+			longRtt += (rtt - longRtt) / LONG_WINDOW;
+		}
+		if (longRtt / shortRtt > LONG_RTT_DRIFT)
+			longRtt *= LONG_RTT_DECAY;
+		if (inFlightAtStart < estimatedLimit / 2) return;
+		double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+		estimatedLimit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+		limit = (int) estimatedLimit;
+	}
+}
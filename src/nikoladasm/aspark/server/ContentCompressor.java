@@ -0,0 +1,77 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaders.Names.ETAG;
+import static io.netty.handler.codec.http.HttpHeaders.getContentLength;
+import static nikoladasm.aspark.CompressionPolicy.OVERRIDE_HEADER;
+import static nikoladasm.aspark.CompressionPolicy.OVERRIDE_OFF;
+import static nikoladasm.aspark.CompressionPolicy.OVERRIDE_ON;
+
+import java.util.List;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import nikoladasm.aspark.CompressionPolicy;
+import nikoladasm.aspark.dispatcher.EntityTags;
+
+public class ContentCompressor extends HttpContentCompressor {
+
+	private CompressionPolicy policy;
+	private String override;
+
+	public ContentCompressor(CompressionPolicy policy) {
+		super(policy.level());
+		this.policy = policy;
+	}
+
+	@Override
+	protected void encode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+		if (msg instanceof HttpResponse) {
+			HttpHeaders headers = ((HttpResponse) msg).headers();
+			override = headers.get(OVERRIDE_HEADER);
+			if (override != null) headers.remove(OVERRIDE_HEADER);
+		}
+		super.encode(ctx, msg, out);
+	}
+
+	@Override
+	protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+		HttpHeaders headers = response.headers();
+		if (override != null) {
+			if (!policy.enabled() || OVERRIDE_OFF.equals(override)) return null;
+			if (OVERRIDE_ON.equals(override)) return encodeTag(headers, super.beginEncode(response, acceptEncoding));
+		}
+		if (!policy.isCompressible(headers.get(CONTENT_TYPE), getContentLength(response, -1)))
+			return null;
+		return encodeTag(headers, super.beginEncode(response, acceptEncoding));
+	}
+
+	private Result encodeTag(HttpHeaders headers, Result result) {
+		if (result == null) return null;
+		String etag = headers.get(ETAG);
+		if (etag != null && etag.startsWith("\""))
+			headers.set(ETAG, EntityTags.variant(etag, result.targetContentEncoding()));
+		return result;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.concurrent.Future;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+public class FlushConsolidationHandler extends ChannelDuplexHandler {
+
+	public static final int DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+	private final int explicitFlushAfterFlushes;
+	private final boolean consolidateWhenNoReadInProgress;
+	private final Runnable flushTask;
+	private ChannelHandlerContext ctx;
+	private int flushPendingCount;
+	private boolean readInProgress;
+	private Future<?> nextScheduledFlush;
+
+	public FlushConsolidationHandler(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+		if (explicitFlushAfterFlushes < 1)
+			throw new IllegalArgumentException("Explicit flush after flushes must be positive");
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+		this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+		flushTask = () -> {
+			nextScheduledFlush = null;
+			if (flushPendingCount > 0 && !readInProgress) {
+				flushPendingCount = 0;
+				ctx.flush();
+			}
+		};
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		if (readInProgress) {
+			if (++flushPendingCount == explicitFlushAfterFlushes) flushNow(ctx);
+		} else if (consolidateWhenNoReadInProgress) {
+			if (++flushPendingCount == explicitFlushAfterFlushes) flushNow(ctx);
+			else if (nextScheduledFlush == null) nextScheduledFlush = ctx.channel().eventLoop().submit(flushTask);
+		} else {
+			flushNow(ctx);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		readInProgress = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		readInProgress = false;
+		flushIfNeeded(ctx);
+		ctx.fireChannelReadComplete();
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (!ctx.channel().isWritable()) flushIfNeeded(ctx);
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.fireExceptionCaught(cause);
+	}
+
+	@Override
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.disconnect(promise);
+	}
+
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.close(promise);
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		flushIfNeeded(ctx);
+	}
+
+	private void flushIfNeeded(ChannelHandlerContext ctx) {
+		if (flushPendingCount > 0) flushNow(ctx);
+	}
+
+	private void flushNow(ChannelHandlerContext ctx) {
+		if (nextScheduledFlush != null) {
+			nextScheduledFlush.cancel(false);
+			nextScheduledFlush = null;
+		}
+		flushPendingCount = 0;
+		ctx.flush();
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import nikoladasm.aspark.ExecutionMode;
+
+public class HandlerExecutors {
+
+	public static final String DEFAULT_POOL_NAME = "aspark-handler";
+
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.server.HandlerExecutors.class);
+
+	private static final String VIRTUAL_THREAD_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+
+	private HandlerExecutors() {}
+
+	public static ExecutorService create(ExecutionMode mode, int maxThreads) {
+		return create(mode, maxThreads, DEFAULT_POOL_NAME);
+	}
+
+	public static ExecutorService create(ExecutionMode mode, int maxThreads, String poolName) {
+		if (mode == ExecutionMode.VIRTUAL_THREADS) {
+			ExecutorService executor = virtualThreadExecutor();
+			if (executor != null) return executor;
+		}
+		return Executors.newFixedThreadPool(maxThreads, new DefaultThreadFactory(poolName));
+	}
+
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD).invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			LOG.info("Virtual threads are not available, falling back to platform thread pool");
+			return null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+public class OutboundLimitHandler extends ChannelDuplexHandler {
+
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.server.OutboundLimitHandler.class);
+	
+	private final long maxPendingWriteBytes;
+	private final long slowReaderTimeoutNanos;
+	private int streamedInputs;
+	private boolean streamedChunks;
+	private boolean overLimit;
+	private int markedMessage;
+	private long markedPosition;
+	private long markedPendingBytes;
+	private ScheduledFuture<?> check;
+	
+	public OutboundLimitHandler(long maxPendingWriteBytes, int slowReaderTimeout) {
+		this.maxPendingWriteBytes = maxPendingWriteBytes;
+		this.slowReaderTimeoutNanos = TimeUnit.SECONDS.toNanos(slowReaderTimeout);
+	}
+	
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof ChunkedInput) {
+			streamedInputs++;
+			promise = whenWritten(ctx, promise, () -> streamedInputs--);
+		} else if (msg instanceof LastHttpContent) {
+			if (streamedChunks)
+				promise = whenWritten(ctx, promise, () -> streamedChunks = false);
+		} else if (msg instanceof HttpContent) {
+			streamedChunks = true;
+		}
+		ctx.write(msg, promise);
+		if (!ctx.channel().isWritable())
+			updateOverLimit(ctx);
+	}
+	
+	private ChannelPromise whenWritten(ChannelHandlerContext ctx, ChannelPromise promise, Runnable action) {
+		ChannelPromise written = ctx.newPromise();
+		written.addListener(future -> {
+			action.run();
+			if (future.isSuccess())
+				promise.trySuccess();
+			else
+				promise.tryFailure(future.cause());
+		});
+		return written;
+	}
+	
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		updateOverLimit(ctx);
+		ctx.fireChannelWritabilityChanged();
+	}
+	
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		cancelCheck();
+	}
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		cancelCheck();
+		ctx.fireChannelInactive();
+	}
+	
+	private boolean overLimit(ChannelHandlerContext ctx) {
+		if (ctx.channel().isWritable() || streamedInputs > 0 || streamedChunks)
+			return false;
+		ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+		return buffer != null && buffer.totalPendingWriteBytes() > maxPendingWriteBytes;
+	}
+	
+	private void updateOverLimit(ChannelHandlerContext ctx) {
+		if (!overLimit(ctx)) {
+			overLimit = false;
+			cancelCheck();
+			return;
+		}
+		if (overLimit) return;
+		overLimit = true;
+		drained(ctx);
+		scheduleCheck(ctx);
+	}
+	
+	private void scheduleCheck(ChannelHandlerContext ctx) {
+		check = ctx.executor().schedule(() -> checkSlowReader(ctx), slowReaderTimeoutNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	private void checkSlowReader(ChannelHandlerContext ctx) {
+		check = null;
+		if (!ctx.channel().isActive() || !overLimit(ctx)) {
+			overLimit = false;
+			return;
+		}
+		if (drained(ctx)) {
+			scheduleCheck(ctx);
+			return;
+		}
+		LOG.warn("Closing slow connection "+ctx.channel().remoteAddress()+
+			", pending write bytes stay over "+maxPendingWriteBytes+" without draining");
+		ctx.close();
+	}
+	
+	private boolean drained(ChannelHandlerContext ctx) {
+		ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+		if (buffer == null) return true;
+		Object current = buffer.current();
+		int message = System.identityHashCode(current);
+		long position = position(current);
+		long pendingBytes = buffer.totalPendingWriteBytes();
+		boolean drained = message != markedMessage ||
+			position != markedPosition ||
+			pendingBytes < markedPendingBytes;
+		markedMessage = message;
+		markedPosition = position;
+		markedPendingBytes = pendingBytes;
+		return drained;
+	}
+	
+	private static long position(Object message) {
+		if (message instanceof ByteBuf)
+			return ((ByteBuf) message).readerIndex();
+		if (message instanceof FileRegion)
+			return ((FileRegion) message).transfered();
+		return 0;
+	}
+	
+	private void cancelCheck() {
+		if (check != null) {
+			check.cancel(false);
+			check = null;
+		}
+	}
+}
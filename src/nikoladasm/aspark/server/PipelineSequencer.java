@@ -0,0 +1,188 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+
+public class PipelineSequencer {
+
+	public static final int DEFAULT_MAX_PIPELINED_REQUESTS = 16;
+
+	public final class Slot {
+		private final long sequence;
+		private volatile boolean ended;
+
+		private Slot(long sequence) {
+			this.sequence = sequence;
+		}
+
+		public ChannelFuture write(Object msg) {
+			return submit(this, msg, false, false);
+		}
+
+		public ChannelFuture push(Object msg) {
+			return submit(this, msg, false, true);
+		}
+
+		public ChannelFuture writeAndFlush(Object msg) {
+			ended = true;
+			return submit(this, msg, true, true);
+		}
+
+		public void end() {
+			if (ended) return;
+			ended = true;
+			submit(this, null, true, true);
+		}
+
+		public boolean ended() {
+			return ended;
+		}
+	}
+
+	private static class PendingWrite {
+		private Object msg;
+		private boolean last;
+		private boolean flush;
+		private ChannelPromise promise;
+
+		private PendingWrite(Object msg, boolean last, boolean flush, ChannelPromise promise) {
+			this.msg = msg;
+			this.last = last;
+			this.flush = flush;
+			this.promise = promise;
+		}
+	}
+
+	private final Channel channel;
+	private final int maxPipelinedRequests;
+	private final Map<Long, Queue<PendingWrite>> pending;
+	private long next;
+	private long current;
+	private boolean closed;
+	private boolean closeWhenIdle;
+	private boolean readsStopped;
+	private ChannelFuture lastWrite;
+
+	public PipelineSequencer(Channel channel, int maxPipelinedRequests) {
+		this.channel = channel;
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		pending = new HashMap<>();
+	}
+
+	public Slot next() {
+		Slot slot = new Slot(next++);
+		if (maxPipelinedRequests > 0 && next - current >= maxPipelinedRequests)
+			channel.config().setAutoRead(false);
+		return slot;
+	}
+
+	public void stopReading() {
+		readsStopped = true;
+		channel.config().setAutoRead(false);
+	}
+
+	public boolean readsStopped() {
+		return readsStopped;
+	}
+
+	public long outstanding() {
+		return next - current;
+	}
+
+	public void closeWhenIdle() {
+		closeWhenIdle = true;
+		closeIfIdle();
+	}
+
+	public void close() {
+		closed = true;
+		pending.values().forEach(writes -> writes.forEach(this::writeToChannel));
+		pending.clear();
+	}
+
+	private ChannelFuture submit(Slot slot, Object msg, boolean last, boolean flush) {
+		ChannelPromise promise = channel.newPromise();
+		if (channel.eventLoop().inEventLoop())
+			write(slot.sequence, new PendingWrite(msg, last, flush, promise));
+		else
+			channel.eventLoop().execute(() -> write(slot.sequence, new PendingWrite(msg, last, flush, promise)));
+		return promise;
+	}
+
+	private void write(long sequence, PendingWrite write) {
+		if (closed || sequence == current) {
+			writeToChannel(write);
+			if (write.last && !closed) {
+				lastWrite = write.promise;
+				complete();
+			}
+		} else {
+			pending.computeIfAbsent(sequence, key -> new ArrayDeque<>()).add(write);
+		}
+	}
+
+	private void complete() {
+		boolean flush = false;
+		for (;;) {
+			current++;
+			if (!readsStopped && !channel.config().isAutoRead() && next - current < maxPipelinedRequests)
+				channel.config().setAutoRead(true);
+			Queue<PendingWrite> writes = pending.remove(current);
+			if (writes == null) break;
+			boolean last = false;
+			for (PendingWrite write : writes) {
+				if (write.msg != null) channel.write(write.msg, write.promise);
+				else write.promise.setSuccess();
+				last = write.last;
+				if (last) lastWrite = write.promise;
+				flush = true;
+			}
+			if (!last) break;
+		}
+		if (flush) channel.flush();
+		closeIfIdle();
+	}
+
+	private void closeIfIdle() {
+		if (!closeWhenIdle || closed || outstanding() > 0) return;
+		if (lastWrite == null || lastWrite.isDone())
+			channel.close();
+		else
+			lastWrite.addListener(ChannelFutureListener.CLOSE);
+	}
+
+	private void writeToChannel(PendingWrite write) {
+		if (write.msg == null) {
+			write.promise.trySuccess();
+		} else if (write.flush) {
+			channel.writeAndFlush(write.msg, write.promise);
+		} else {
+			channel.write(write.msg, write.promise);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class RequestExecutor implements Executor {
+
+	public static final int DEFAULT_RETRY_AFTER = 1;
+
+	private static class QueuedTask {
+		private Consumer<Runnable> task;
+		private Runnable onRejected;
+
+		private QueuedTask(Consumer<Runnable> task, Runnable onRejected) {
+			this.task = task;
+			this.onRejected = onRejected;
+		}
+	}
+
+	private final ExecutorService executor;
+	private final int maxQueuedRequests;
+	private final int retryAfter;
+	private final AtomicInteger queued;
+	private final AtomicLong shed;
+	private final ConcurrencyLimiter limiter;
+	private final Queue<QueuedTask> waiting;
+
+	public RequestExecutor(ExecutorService executor,
+			int maxQueuedRequests,
+			int retryAfter,
+			ConcurrencyLimiter limiter) {
+		this.executor = executor;
+		this.maxQueuedRequests = maxQueuedRequests;
+		this.retryAfter = retryAfter;
+		this.limiter = limiter;
+		queued = new AtomicInteger();
+		shed = new AtomicLong();
+		waiting = new ConcurrentLinkedQueue<>();
+	}
+
+	public RequestExecutor(ExecutorService executor, int maxQueuedRequests, int retryAfter) {
+		this(executor, maxQueuedRequests, retryAfter, null);
+	}
+
+	public RequestExecutor(ExecutorService executor) {
+		this(executor, 0, DEFAULT_RETRY_AFTER, null);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		execute(task, null);
+	}
+
+	public void execute(Runnable task, Runnable onRejected) {
+		executeAsync(completed -> {
+			task.run();
+			completed.run();
+		}, onRejected);
+	}
+
+	public void executeAsync(Consumer<Runnable> task, Runnable onRejected) {
+		int depth = queued.incrementAndGet();
+		if (maxQueuedRequests > 0 && depth > maxQueuedRequests) {
+			queued.decrementAndGet();
+			shed.incrementAndGet();
+			throw new RejectedExecutionException("Request queue is full");
+		}
+		if (limiter != null) {
+			waiting.add(new QueuedTask(task, onRejected));
+			drain();
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				queued.decrementAndGet();
+				task.accept(() -> {});
+			});
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			shed.incrementAndGet();
+			throw e;
+		}
+	}
+
+	private void drain() {
+		while (!waiting.isEmpty() && limiter.tryAcquire()) {
+			QueuedTask queuedTask = waiting.poll();
+			if (queuedTask == null) {
+				limiter.release();
+				return;
+			}
+			Runnable completed = completion(limiter.inFlight(), System.nanoTime());
+			try {
+				executor.execute(() -> {
+					queued.decrementAndGet();
+					try {
+						queuedTask.task.accept(completed);
+					} catch (RuntimeException | Error e) {
+						completed.run();
+						throw e;
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				queued.decrementAndGet();
+				shed.incrementAndGet();
+				limiter.release();
+				if (queuedTask.onRejected != null) queuedTask.onRejected.run();
+			}
+		}
+	}
+
+	private Runnable completion(int inFlight, long start) {
+		AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			if (!released.compareAndSet(false, true)) return;
+			limiter.release(System.nanoTime() - start, inFlight);
+			drain();
+		};
+	}
+
+	public ExecutorService executor() {
+		return executor;
+	}
+
+	public int maxQueuedRequests() {
+		return maxQueuedRequests;
+	}
+
+	public int retryAfter() {
+		return retryAfter;
+	}
+
+	public int queueDepth() {
+		return queued.get();
+	}
+
+	public long shedRequests() {
+		return shed.get();
+	}
+
+	public ConcurrencyLimiter limiter() {
+		return limiter;
+	}
+}
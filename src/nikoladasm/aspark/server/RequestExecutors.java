@@ -0,0 +1,89 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RequestExecutors {
+
+	private static class Binding {
+		private String prefix;
+		private RequestExecutor executor;
+
+		private Binding(String prefix, RequestExecutor executor) {
+			this.prefix = prefix;
+			this.executor = executor;
+		}
+
+		private boolean matches(String path) {
+			if (!path.startsWith(prefix)) return false;
+			return path.length() == prefix.length() ||
+				prefix.endsWith("/") ||
+				path.charAt(prefix.length()) == '/';
+		}
+	}
+
+	private final RequestExecutor defaultExecutor;
+	private final Map<String, RequestExecutor> executors;
+	private final List<Binding> bindings;
+
+	public RequestExecutors(RequestExecutor defaultExecutor) {
+		this.defaultExecutor = defaultExecutor;
+		executors = new LinkedHashMap<>();
+		bindings = new ArrayList<>();
+	}
+
+	public void add(String name, RequestExecutor executor) {
+		executors.put(name, executor);
+	}
+
+	public void bind(String pathPrefix, String name) {
+		RequestExecutor executor = executors.get(name);
+		if (executor == null)
+			throw new IllegalArgumentException("Unknown executor "+name);
+		int i = 0;
+		while (i < bindings.size() && bindings.get(i).prefix.length() >= pathPrefix.length()) i++;
+		bindings.add(i, new Binding(pathPrefix, executor));
+	}
+
+	public RequestExecutor select(String path) {
+		for (Binding binding : bindings)
+			if (binding.matches(path)) return binding.executor;
+		return defaultExecutor;
+	}
+
+	public RequestExecutor get(String name) {
+		return executors.get(name);
+	}
+
+	public RequestExecutor defaultExecutor() {
+		return defaultExecutor;
+	}
+
+	public Collection<RequestExecutor> all() {
+		List<RequestExecutor> all = new ArrayList<>(executors.size()+1);
+		all.add(defaultExecutor);
+		all.addAll(executors.values());
+		return all;
+	}
+}
@@ -24,7 +24,9 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
@@ -33,6 +35,8 @@ import io.netty.handler.codec.http.multipart.*;
 import io.netty.handler.codec.http.multipart.InterfaceHttpData.HttpDataType;
 import io.netty.handler.codec.http.websocketx.*;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -51,9 +55,11 @@ import nikoladasm.aspark.dispatcher.Dispatcher;
 
 import static io.netty.handler.codec.http.HttpHeaders.isKeepAlive;
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
+import static io.netty.handler.codec.http.HttpHeaders.Values.CLOSE;
 import static io.netty.handler.codec.http.HttpHeaders.Values.KEEP_ALIVE;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_0;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -65,6 +71,8 @@ import static nikoladasm.aspark.ASparkInstance.DEFAULT_RESPONSE_TRANSFORMER;
 public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.server.ServerHandler.class);
 
+	static final Object DRAIN_EVENT = new Object();
+	
 	private static final AttributeKey<WebSocketServerHandshaker> HANDSHAKER_ATTR_KEY =
 		AttributeKey.valueOf("HANDSHAKER");
 	private static final AttributeKey<WebSocketHandler> WEBSOCKET_HANDLER_ATTR_KEY =
@@ -78,7 +86,11 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 	private ExceptionMap exceptionMap;
 	private WebSocketMap webSockets;
 	private String serverName;
-	private Executor pool;
+	private RequestExecutors pool;
+	private ServerOptions options;
+	private PipelineSequencer sequencer;
+	private int requests;
+	private volatile boolean draining;
 
 	public ServerHandler(
 			String ipAddress,
@@ -87,7 +99,8 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 			ExceptionMap exceptionMap,
 			WebSocketMap webSockets,
 			String serverName,
-			Executor pool) {
+			RequestExecutors pool,
+			ServerOptions options) {
 		this.ipAddress = ipAddress;
 		this.port = port;
 		this.dispatcher = dispatcher;
@@ -95,6 +108,22 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 		this.webSockets = webSockets;
 		this.serverName = serverName;
 		this.pool = pool;
+		this.options = options;
+	}
+	
+	public boolean draining() {
+		return draining;
+	}
+	
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		sequencer = new PipelineSequencer(ctx.channel(), options.maxPipelinedRequests());
+	}
+	
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		sequencer.close();
+		super.channelInactive(ctx);
 	}
 	
 	@Override
@@ -106,6 +135,29 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 		}
 	}
 	
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if (evt == DRAIN_EVENT) {
+			draining = true;
+			sequencer.closeWhenIdle();
+			return;
+		}
+		if (!(evt instanceof IdleStateEvent)) {
+			super.userEventTriggered(ctx, evt);
+			return;
+		}
+		if (ctx.channel().attr(HANDSHAKER_ATTR_KEY).get() != null) {
+			super.userEventTriggered(ctx, evt);
+			return;
+		}
+		IdleState state = ((IdleStateEvent) evt).state();
+		if (state == IdleState.WRITER_IDLE) {
+			if (!ctx.channel().isWritable()) ctx.close();
+		} else if (sequencer.outstanding() == 0) {
+			ctx.close();
+		}
+	}
+	
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 		LOG.warn("Unexpected exception", cause);
@@ -113,9 +165,11 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 	}
 	
 	private void handleHttpRequest(ChannelHandlerContext ctx, FullHttpRequest nettyRequest) throws Exception {
+		if (sequencer.readsStopped()) return;
 		boolean decoderResult = nettyRequest.getDecoderResult().isSuccess();
 		HttpVersion version = nettyRequest.getProtocolVersion();
-		boolean keepAlive = isKeepAlive(nettyRequest);
+		boolean keepAlive = isKeepAlive(nettyRequest) && !draining && !isLastRequest();
+		PipelineSequencer.Slot slot = sequencer.next();
 		if (decoderResult) {
 			String uri = QueryStringDecoder.decodeComponent(nettyRequest.getUri(), CharsetUtil.UTF_8);
 			QueryStringDecoder queryStringDecoder = new QueryStringDecoder(uri);
@@ -141,69 +195,173 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 					version,
 					keepAlive,
 					httpMethod,
-					serverName);
-			pool.execute(() -> {
+					serverName,
+					slot);
+			if (dispatcher.isNonBlocking(request)) {
+				process(ctx, slot, nettyRequest, request, response, originalHttpMethod, path, version, keepAlive, () -> {});
+			} else {
+				RequestExecutor executor = pool.select(path);
 				try {
-					boolean processed =
-					WebSocketHandshake(
-							originalHttpMethod,
-							path,
-							nettyRequest,
-							ctx);
-					if (processed) return;
-					dispatcher.process(
-							request,
-							response);
-					response.send();
-				} catch (Exception e) {
-					LOG.warn("Exception ", e);
-					if (e instanceof HaltException) {
-						sendResponse(ctx,
-								version,
-								HttpResponseStatus.valueOf(((HaltException) e).status()),
-								keepAlive,
-								((HaltException) e).body());
-						return;
-					}
-					ExceptionHandler handler = exceptionMap.get(e.getClass());
-					if (handler != null) {
-						handler.handle(e, request, response);
-						try {
-							if (response.inputStream() != null) {
-								response.inputStream().close();
-								response.inputStream(null);
-								if (response.transformer() == null)
-									response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
-							}
+					executor.executeAsync(completed ->
+						process(ctx, slot, nettyRequest, request, response, originalHttpMethod, path, version, keepAlive, completed),
+						() -> sendResponse(slot, version, SERVICE_UNAVAILABLE, keepAlive, null, executor.retryAfter()));
+				} catch (RejectedExecutionException e) {
+					sendResponse(slot, version, SERVICE_UNAVAILABLE, keepAlive, null, executor.retryAfter());
+				}
+			}
+		} else {
+			sendResponse(slot, version, BAD_REQUEST, keepAlive, null);
+		}
+	}
+	
+	private boolean isLastRequest() {
+		int maxRequests = options.maxRequestsPerConnection();
+		if (maxRequests == 0 || ++requests < maxRequests) return false;
+		sequencer.stopReading();
+		return true;
+	}
+	
+	private void process(
+			ChannelHandlerContext ctx,
+			PipelineSequencer.Slot slot,
+			FullHttpRequest nettyRequest,
+			RequestImpl request,
+			ResponseImpl response,
+			HttpMethod originalHttpMethod,
+			String path,
+			HttpVersion version,
+			boolean keepAlive,
+			Runnable completed) {
+		boolean async = false;
+		try {
+			boolean processed =
+			WebSocketHandshake(
+					originalHttpMethod,
+					path,
+					nettyRequest,
+					ctx);
+			if (processed) return;
+			CompletableFuture<Boolean> result =
+				dispatcher.process(
+					request,
+					response).toCompletableFuture();
+			if (!result.isDone()) {
+				async = true;
+				result.whenComplete((routeFound, t) -> {
+					try {
+						Throwable cause = (t instanceof CompletionException && t.getCause() != null) ?
+							t.getCause() : t;
+						if (cause == null) {
 							response.send();
-						} catch (Exception exc) {
-							sendResponse(ctx, version, INTERNAL_SERVER_ERROR, keepAlive, null);
+						} else if (cause instanceof Exception) {
+							handleException((Exception) cause, slot, request, response, version, keepAlive);
+						} else {
+							LOG.warn("Error ", cause);
+							sendResponse(slot, version, INTERNAL_SERVER_ERROR, keepAlive, null);
 						}
-						return;
+					} catch (Exception e) {
+						handleException(e, slot, request, response, version, keepAlive);
+					} finally {
+						slot.end();
+						completed.run();
 					}
-					sendResponse(ctx, version, INTERNAL_SERVER_ERROR, keepAlive, null);
+				});
+				return;
+			}
+			result.join();
+			response.send();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				handleException((Exception) cause, slot, request, response, version, keepAlive);
+			} else {
+				LOG.warn("Error ", cause);
+				sendResponse(slot, version, INTERNAL_SERVER_ERROR, keepAlive, null);
+			}
+		} catch (Exception e) {
+			handleException(e, slot, request, response, version, keepAlive);
+		} finally {
+			if (!async) {
+				slot.end();
+				completed.run();
+			}
+		}
+	}
+	
+	private void handleException(
+			Exception e,
+			PipelineSequencer.Slot slot,
+			RequestImpl request,
+			ResponseImpl response,
+			HttpVersion version,
+			boolean keepAlive) {
+		LOG.warn("Exception ", e);
+		if (response.committed()) {
+			response.abort();
+			return;
+		}
+		if (e instanceof HaltException) {
+			sendResponse(slot,
+					version,
+					HttpResponseStatus.valueOf(((HaltException) e).status()),
+					keepAlive,
+					((HaltException) e).body());
+			return;
+		}
+		ExceptionHandler handler = exceptionMap.get(e.getClass());
+		if (handler != null) {
+			handler.handle(e, request, response);
+			try {
+				if (response.inputStream() != null) {
+					response.inputStream().close();
+					response.inputStream(null);
+					if (response.transformer() == null)
+						response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
 				}
-			});
-		} else {
-			sendResponse(ctx, version, BAD_REQUEST, keepAlive, null);
+				if (response.file() != null) {
+					response.file(null, 0);
+					if (response.transformer() == null)
+						response.transformer(DEFAULT_RESPONSE_TRANSFORMER);
+				}
+				response.send();
+			} catch (Exception exc) {
+				sendResponse(slot, version, INTERNAL_SERVER_ERROR, keepAlive, null);
+			}
+			return;
 		}
+		sendResponse(slot, version, INTERNAL_SERVER_ERROR, keepAlive, null);
 	}
 	
 	private void sendResponse(
-			ChannelHandlerContext ctx,
+			PipelineSequencer.Slot slot,
 			HttpVersion version,
 			HttpResponseStatus status,
 			boolean keepAlive,
 			String body) {
+		sendResponse(slot, version, status, keepAlive, body, 0);
+	}
+	
+	private void sendResponse(
+			PipelineSequencer.Slot slot,
+			HttpVersion version,
+			HttpResponseStatus status,
+			boolean keepAlive,
+			String body,
+			int retryAfter) {
+		keepAlive = keepAlive && !draining;
 		FullHttpResponse response =
 			new DefaultFullHttpResponse ((version == null) ? HTTP_1_1 : version,
 					status,
 					Unpooled.copiedBuffer((body == null) ? "" : body, CharsetUtil.UTF_8));
 		response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
 		response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+		if (retryAfter > 0)
+			response.headers().set(RETRY_AFTER, retryAfter);
 		if (keepAlive)
 			response.headers().set(CONNECTION, KEEP_ALIVE);
-		ChannelFuture lastContentFuture = ctx.channel().writeAndFlush(response);
+		else if (!HTTP_1_0.equals(version))
+			response.headers().set(CONNECTION, CLOSE);
+		ChannelFuture lastContentFuture = slot.writeAndFlush(response);
 		if (!keepAlive || HTTP_1_0.equals(version))
 			lastContentFuture.addListener(ChannelFutureListener.CLOSE);
 	}
@@ -264,6 +422,8 @@ public class ServerHandler extends SimpleChannelInboundHandler<Object> {
 					} else {
 						channel.attr(WEBSOCKET_HANDLER_ATTR_KEY).set(wsHandler);
 						channel.attr(HANDSHAKER_ATTR_KEY).set(handshaker);
+						if (channel.pipeline().get("idleState") != null)
+							channel.pipeline().remove("idleState");
 						WebSocketContextImpl wsContext =
 							new WebSocketContextImpl(channel);
 						channel.attr(WEBSOCKET_CONTEXT_ATTR_KEY).set(wsContext);
@@ -18,20 +18,22 @@
 
 package nikoladasm.aspark.server;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import nikoladasm.aspark.CompressionPolicy;
 import nikoladasm.aspark.ExceptionMap;
 import nikoladasm.aspark.WebSocketMap;
 import nikoladasm.aspark.dispatcher.Dispatcher;
@@ -47,7 +49,10 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 	private ExceptionMap exceptionMap;
 	private WebSocketMap webSockets;
 	private String serverName;
-	private Executor pool;
+	private CompressionPolicy compressionPolicy;
+	private RequestExecutors pool;
+	private ServerOptions options;
+	private ChannelGroup connections;
 	
 	public ServerInitializer(SSLContext sslContext,
 			int maxContentLength,
@@ -57,7 +62,10 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 			ExceptionMap exceptionMap,
 			WebSocketMap webSockets,
 			String serverName,
-			Executor pool) {
+			CompressionPolicy compressionPolicy,
+			RequestExecutors pool,
+			ServerOptions options,
+			ChannelGroup connections) {
 		this.sslContext = sslContext;
 		this.maxContentLength = maxContentLength;
 		this.ipAddress = ipAddress;
@@ -66,12 +74,20 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 		this.exceptionMap = exceptionMap;
 		this.webSockets = webSockets;
 		this.serverName = serverName;
+		this.compressionPolicy = compressionPolicy;
 		this.pool = pool;
+		this.options = options;
+		this.connections = connections;
 	}
 	
 	@Override
 	public void initChannel(SocketChannel channel) throws Exception {
+		connections.add(channel);
 		ChannelPipeline pipeline = channel.pipeline();
+		if (options.explicitFlushAfterFlushes() > 0)
+			pipeline.addLast("flushConsolidation", new FlushConsolidationHandler(
+				options.explicitFlushAfterFlushes(),
+				options.consolidateWhenNoReadInProgress()));
 		if (sslContext != null) {
 			SSLEngine sslEngine = sslContext.createSSLEngine();
 			sslEngine.setUseClientMode(false);
@@ -82,10 +98,20 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 			SslHandler sslHandler = new SslHandler(sslEngine);
 			pipeline.addLast("ssl", sslHandler);
 		}
+		if (options.hasIdleTimeouts())
+			pipeline.addLast("idleState", new IdleStateHandler(
+				options.readIdleTimeout(),
+				options.writeIdleTimeout(),
+				options.keepAliveTimeout(),
+				TimeUnit.SECONDS));
 		pipeline.addLast("httpCodec", new HttpServerCodec());
 		pipeline.addLast("inflater", new HttpContentDecompressor());
-		pipeline.addLast("deflater", new HttpContentCompressor());
+		pipeline.addLast("deflater", new ContentCompressor(compressionPolicy));
 		pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+		if (options.maxPendingWriteBytes() > 0)
+			pipeline.addLast("outboundLimit", new OutboundLimitHandler(
+				options.maxPendingWriteBytes(),
+				options.slowReaderTimeout()));
 		pipeline.addLast("aggregator", new HttpObjectAggregator(maxContentLength));
 		ServerHandler serverHandler = new ServerHandler(
 				ipAddress,
@@ -94,7 +120,8 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
 				exceptionMap,
 				webSockets,
 				serverName,
-				pool);
+				pool,
+				options);
 		pipeline.addLast("handler", serverHandler);
 	}
 
@@ -0,0 +1,241 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+
+public class ServerOptions {
+
+	public static final int DEFAULT_BACKLOG = 1024;
+	public static final int DEFAULT_DRAIN_TIMEOUT = 15;
+	public static final int DEFAULT_SLOW_READER_TIMEOUT = 5;
+
+	private static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+
+	private int bossThreads;
+	private int workerThreads;
+	private int backlog = DEFAULT_BACKLOG;
+	private int receiveBufferSize;
+	private int sendBufferSize;
+	private int writeBufferLowWaterMark;
+	private int writeBufferHighWaterMark;
+	private ByteBufAllocator allocator;
+	private int maxPipelinedRequests = PipelineSequencer.DEFAULT_MAX_PIPELINED_REQUESTS;
+	private int readIdleTimeout;
+	private int writeIdleTimeout;
+	private int keepAliveTimeout;
+	private int maxRequestsPerConnection;
+	private volatile int drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+	private long maxPendingWriteBytes;
+	private int slowReaderTimeout = DEFAULT_SLOW_READER_TIMEOUT;
+	private int explicitFlushAfterFlushes = FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+	private boolean consolidateWhenNoReadInProgress;
+
+	public void bossThreads(int bossThreads) {
+		if (bossThreads < 0)
+			throw new IllegalArgumentException("Boss threads count can't be negative");
+		this.bossThreads = bossThreads;
+	}
+
+	public int bossThreads() {
+		return bossThreads;
+	}
+
+	public void workerThreads(int workerThreads) {
+		if (workerThreads < 0)
+			throw new IllegalArgumentException("Worker threads count can't be negative");
+		this.workerThreads = workerThreads;
+	}
+
+	public int workerThreads() {
+		return workerThreads;
+	}
+
+	public void backlog(int backlog) {
+		if (backlog < 1)
+			throw new IllegalArgumentException("Backlog must be positive");
+		this.backlog = backlog;
+	}
+
+	public int backlog() {
+		return backlog;
+	}
+
+	public void receiveBufferSize(int receiveBufferSize) {
+		if (receiveBufferSize < 0)
+			throw new IllegalArgumentException("Receive buffer size can't be negative");
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	public int receiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void sendBufferSize(int sendBufferSize) {
+		if (sendBufferSize < 0)
+			throw new IllegalArgumentException("Send buffer size can't be negative");
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	public int sendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void writeBufferWaterMark(int low, int high) {
+		if (low < 0 || high < low)
+			throw new IllegalArgumentException("Write buffer water marks must satisfy 0 <= low <= high");
+		writeBufferLowWaterMark = low;
+		writeBufferHighWaterMark = high;
+	}
+
+	public int writeBufferLowWaterMark() {
+		return writeBufferLowWaterMark;
+	}
+
+	public int writeBufferHighWaterMark() {
+		return writeBufferHighWaterMark;
+	}
+
+	public void allocator(boolean pooled, boolean preferDirect) {
+		allocator = (pooled) ?
+			new PooledByteBufAllocator(preferDirect) :
+			new UnpooledByteBufAllocator(preferDirect);
+	}
+
+	public ByteBufAllocator allocator() {
+		return allocator;
+	}
+
+	public void maxPipelinedRequests(int maxPipelinedRequests) {
+		if (maxPipelinedRequests < 0)
+			throw new IllegalArgumentException("Max pipelined requests can't be negative");
+		this.maxPipelinedRequests = maxPipelinedRequests;
+	}
+
+	public int maxPipelinedRequests() {
+		return maxPipelinedRequests;
+	}
+
+	public void idleTimeouts(int readIdleTimeout, int writeIdleTimeout, int keepAliveTimeout) {
+		if (readIdleTimeout < 0 || writeIdleTimeout < 0 || keepAliveTimeout < 0)
+			throw new IllegalArgumentException("Idle timeouts can't be negative");
+		this.readIdleTimeout = readIdleTimeout;
+		this.writeIdleTimeout = writeIdleTimeout;
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public int readIdleTimeout() {
+		return readIdleTimeout;
+	}
+
+	public int writeIdleTimeout() {
+		return writeIdleTimeout;
+	}
+
+	public int keepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	public boolean hasIdleTimeouts() {
+		return readIdleTimeout > 0 || writeIdleTimeout > 0 || keepAliveTimeout > 0;
+	}
+
+	public void maxRequestsPerConnection(int maxRequestsPerConnection) {
+		if (maxRequestsPerConnection < 0)
+			throw new IllegalArgumentException("Max requests per connection can't be negative");
+		this.maxRequestsPerConnection = maxRequestsPerConnection;
+	}
+
+	public int maxRequestsPerConnection() {
+		return maxRequestsPerConnection;
+	}
+
+	public void maxPendingWriteBytes(long maxPendingWriteBytes) {
+		maxPendingWriteBytes(maxPendingWriteBytes, DEFAULT_SLOW_READER_TIMEOUT);
+	}
+
+	public void maxPendingWriteBytes(long maxPendingWriteBytes, int slowReaderTimeout) {
+		if (maxPendingWriteBytes < 0)
+			throw new IllegalArgumentException("Max pending write bytes can't be negative");
+		if (slowReaderTimeout <= 0)
+			throw new IllegalArgumentException("Slow reader timeout must be positive");
+		this.maxPendingWriteBytes = maxPendingWriteBytes;
+		this.slowReaderTimeout = slowReaderTimeout;
+	}
+
+	public long maxPendingWriteBytes() {
+		return maxPendingWriteBytes;
+	}
+
+	public int slowReaderTimeout() {
+		return slowReaderTimeout;
+	}
+
+	public void flushConsolidation(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+		if (explicitFlushAfterFlushes < 0)
+			throw new IllegalArgumentException("Explicit flush after flushes can't be negative");
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+		this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+	}
+
+	public int explicitFlushAfterFlushes() {
+		return explicitFlushAfterFlushes;
+	}
+
+	public boolean consolidateWhenNoReadInProgress() {
+		return consolidateWhenNoReadInProgress;
+	}
+
+	public void drainTimeout(int drainTimeout) {
+		if (drainTimeout < 0)
+			throw new IllegalArgumentException("Drain timeout can't be negative");
+		this.drainTimeout = drainTimeout;
+	}
+
+	public int drainTimeout() {
+		return drainTimeout;
+	}
+
+	public void configure(ServerBootstrap server) {
+		server.option(ChannelOption.SO_BACKLOG, backlog);
+		if (receiveBufferSize > 0) {
+			server.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+			server.childOption(ChannelOption.SO_RCVBUF, receiveBufferSize);
+		}
+		if (sendBufferSize > 0)
+			server.childOption(ChannelOption.SO_SNDBUF, sendBufferSize);
+		if (writeBufferHighWaterMark > 0) {
+			if (writeBufferHighWaterMark < DEFAULT_WRITE_BUFFER_LOW_WATER_MARK) {
+				server.childOption(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, writeBufferLowWaterMark);
+				server.childOption(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, writeBufferHighWaterMark);
+			} else {
+				server.childOption(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, writeBufferHighWaterMark);
+				server.childOption(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, writeBufferLowWaterMark);
+			}
+		}
+		if (allocator != null) {
+			server.option(ChannelOption.ALLOCATOR, allocator);
+			server.childOption(ChannelOption.ALLOCATOR, allocator);
+		}
+	}
+}
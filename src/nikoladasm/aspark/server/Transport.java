@@ -0,0 +1,116 @@
+/*
+ *  ASpark
+ *  Copyright (C) 2015  Nikolay Platov
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package nikoladasm.aspark.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+public class Transport {
+
+	private static final InternalLogger LOG = InternalLoggerFactory.getInstance(nikoladasm.aspark.server.Transport.class);
+
+	private static final String EPOLL_CLASS = "io.netty.channel.epoll.Epoll";
+	private static final String EPOLL_EVENT_LOOP_GROUP_CLASS = "io.netty.channel.epoll.EpollEventLoopGroup";
+	private static final String EPOLL_SERVER_SOCKET_CHANNEL_CLASS = "io.netty.channel.epoll.EpollServerSocketChannel";
+	private static final String EPOLL_CHANNEL_OPTION_CLASS = "io.netty.channel.epoll.EpollChannelOption";
+	private static final String EPOLL_MODE_CLASS = "io.netty.channel.epoll.EpollMode";
+
+	public static final Transport NIO = new Transport();
+
+	private boolean epoll;
+	private Class<? extends EventLoopGroup> groupClass;
+	private Class<? extends ServerChannel> serverChannelClass;
+	private ChannelOption<Object> reusePortOption;
+	private ChannelOption<Object> epollModeOption;
+	private Object edgeTriggered;
+
+	private Transport() {
+		epoll = false;
+		serverChannelClass = NioServerSocketChannel.class;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Transport(ClassLoader loader) throws ReflectiveOperationException {
+		epoll = true;
+		groupClass = (Class<? extends EventLoopGroup>) Class.forName(EPOLL_EVENT_LOOP_GROUP_CLASS, true, loader);
+		serverChannelClass = (Class<? extends ServerChannel>) Class.forName(EPOLL_SERVER_SOCKET_CHANNEL_CLASS, true, loader);
+		Class<?> options = Class.forName(EPOLL_CHANNEL_OPTION_CLASS, true, loader);
+		reusePortOption = (ChannelOption<Object>) options.getField("SO_REUSEPORT").get(null);
+		try {
+			epollModeOption = (ChannelOption<Object>) options.getField("EPOLL_MODE").get(null);
+			Class<?> modes = Class.forName(EPOLL_MODE_CLASS, true, loader);
+			edgeTriggered = modes.getField("EDGE_TRIGGERED").get(null);
+		} catch (ReflectiveOperationException e) {
+			epollModeOption = null;
+		}
+	}
+
+	public static Transport select(boolean preferNative) {
+		if (!preferNative) return NIO;
+		ClassLoader loader = Transport.class.getClassLoader();
+		try {
+			Class<?> epollClass = Class.forName(EPOLL_CLASS, true, loader);
+			if (!(Boolean) epollClass.getMethod("isAvailable").invoke(null)) {
+				Throwable cause = (Throwable) epollClass.getMethod("unavailabilityCause").invoke(null);
+				LOG.info("Native epoll transport is not available, falling back to NIO: "+cause);
+				return NIO;
+			}
+			return new Transport(loader);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			LOG.info("Native epoll transport could not be loaded, falling back to NIO");
+			return NIO;
+		}
+	}
+
+	public boolean isNative() {
+		return epoll;
+	}
+
+	public boolean supportsReusePort() {
+		return reusePortOption != null;
+	}
+
+	public EventLoopGroup eventLoopGroup(int threads) {
+		if (!epoll) return new NioEventLoopGroup(threads);
+		try {
+			return groupClass.getConstructor(int.class).newInstance(threads);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create epoll event loop group", e);
+		}
+	}
+
+	public Class<? extends ServerChannel> serverChannelClass() {
+		return serverChannelClass;
+	}
+
+	public void configure(ServerBootstrap server, boolean reusePort) {
+		if (!epoll) return;
+		if (epollModeOption != null) {
+			server.option(epollModeOption, edgeTriggered);
+			server.childOption(epollModeOption, edgeTriggered);
+		}
+		if (reusePort) server.option(reusePortOption, true);
+	}
+}
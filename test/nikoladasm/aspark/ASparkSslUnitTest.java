@@ -24,8 +24,17 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
 
 import org.junit.AfterClass;
 
@@ -34,11 +43,16 @@ import static org.hamcrest.CoreMatchers.*;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
 import nikoladasm.simplehttpclient.HttpResponse;
 import nikoladasm.simplehttpclient.SimpleHttpClient;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
@@ -59,10 +73,37 @@ public class ASparkSslUnitTest {
 		
 	
 
+	private static final int LARGE_FILE_SIZE = 64 * 1024;
+	
+	private static byte[] largeFileContent;
+
 	private static void setupStaticFiles() throws IOException {
 		new File(System.getProperty("java.io.tmpdir")+"/ssl/pages").mkdirs();
 		Files.copy(Paths.get("resources/pages/index.html"), Paths.get(System.getProperty("java.io.tmpdir")+"/ssl/pages"), REPLACE_EXISTING);
+		largeFileContent = new byte[LARGE_FILE_SIZE];
+		new Random().nextBytes(largeFileContent);
+		Files.write(Paths.get(System.getProperty("java.io.tmpdir"), "ssl", "large.bin"), largeFileContent);
 		externalStaticFileLocation(System.getProperty("java.io.tmpdir"));
+		externalStaticFileMapping(LARGE_FILE_SIZE / 2, LARGE_FILE_SIZE * 4);
+	}
+	
+	private static OkHttpClient trustAllClient() throws Exception {
+		TrustManager[] trustAll = new TrustManager[] {
+			new X509TrustManager() {
+				@Override
+				public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+				@Override
+				public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+				@Override
+				public X509Certificate[] getAcceptedIssuers() {return new X509Certificate[0];}
+			}
+		};
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(null, trustAll, null);
+		OkHttpClient client = new OkHttpClient();
+		client.setSslSocketFactory(sslContext.getSocketFactory());
+		client.setHostnameVerifier((hostname, session) -> true);
+		return client;
 	}
 		
 	@BeforeClass
@@ -70,6 +111,9 @@ public class ASparkSslUnitTest {
 		InternalLoggerFactory.setDefaultFactory(new Slf4JLoggerFactory());
 		ipAddress(IP_ADDRESS);
 		port(PORT);
+		nativeTransport(true);
+		acceptors(2);
+		adaptiveConcurrency(true);
 		secure("resources/keystore.jks", "password", null, null);
 		setupStaticFiles();
 		init();
@@ -115,6 +159,53 @@ public class ASparkSslUnitTest {
 		assertThat(resSrt, is(containsString("Method override worked")));
 	}
 
+	@Test
+	public void shouldBeMappedLargeStaticFile() throws Exception {
+		OkHttpClient client = trustAllClient();
+		assertThat(externalStaticFileMappedSize(), is(equalTo(0L)));
+		for (int i=0; i<4; i++) {
+			Request request = new Request.Builder().url(SSL_PATH+"/large.bin").build();
+			com.squareup.okhttp.Response response = client.newCall(request).execute();
+			assertThat(response.code(), is(equalTo(200)));
+			assertThat(response.body().bytes(), is(equalTo(largeFileContent)));
+		}
+		assertThat(externalStaticFileMappedSize(), is(equalTo((long) LARGE_FILE_SIZE)));
+		Request request = new Request.Builder()
+			.url(SSL_PATH+"/large.bin")
+			.header("Range", "bytes=100-20099")
+			.build();
+		com.squareup.okhttp.Response response = client.newCall(request).execute();
+		assertThat(response.code(), is(equalTo(206)));
+		assertThat(response.body().bytes(), is(equalTo(Arrays.copyOfRange(largeFileContent, 100, 20100))));
+		request = new Request.Builder()
+			.url(SSL_PATH+"/large.bin")
+			.header("Range", "bytes=0-9999,-10000")
+			.build();
+		response = client.newCall(request).execute();
+		assertThat(response.code(), is(equalTo(206)));
+		String body = new String(response.body().bytes(), ISO_8859_1);
+		assertThat(body, containsString(new String(Arrays.copyOfRange(largeFileContent, 0, 10000), ISO_8859_1)));
+		assertThat(body, containsString(new String(Arrays.copyOfRange(largeFileContent, LARGE_FILE_SIZE-10000, LARGE_FILE_SIZE), ISO_8859_1)));
+	}
+	
+	@Test
+	public void shouldBeCopiedFileRegionReturnedByTransformer() throws Exception {
+		File file = Paths.get(System.getProperty("java.io.tmpdir"), "ssl", "large.bin").toFile();
+		AtomicReference<FileRegion> region = new AtomicReference<>();
+		get("/ssl/fileregion", (request, response) -> {
+			return file;
+		}, (ResponseTransformer) body -> {
+			region.set(new DefaultFileRegion(new RandomAccessFile((File) body, "r").getChannel(), 0, LARGE_FILE_SIZE));
+			return region.get();
+		});
+		
+		Request request = new Request.Builder().url(SSL_PATH+"/fileregion").build();
+		com.squareup.okhttp.Response response = trustAllClient().newCall(request).execute();
+		assertThat(response.code(), is(equalTo(200)));
+		assertThat(response.body().bytes(), is(equalTo(largeFileContent)));
+		ASparkUnitTest.assertReleased(region.get());
+	}
+	
 	@Test
 	public void shouldBeStaticFilePagesIndexHtml() throws Exception {
 		String resSrt = C.get(SSL_PATH+"/pages/", clResTr);
@@ -25,17 +25,33 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -55,10 +71,30 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import nikoladasm.commons.dydamictypedmap.*;
 import nikoladasm.simplehttpclient.HttpResponse;
 import nikoladasm.simplehttpclient.SimpleHttpClient;
+import nikoladasm.aspark.dispatcher.ACLMatcher;
+import nikoladasm.aspark.dispatcher.FileMetadataCache;
+import nikoladasm.aspark.dispatcher.FileMetadataCache.FileMetadata;
+import nikoladasm.aspark.server.ConcurrencyLimiter;
+import nikoladasm.aspark.server.HandlerExecutors;
+import nikoladasm.aspark.server.RequestExecutor;
+import nikoladasm.aspark.server.ServerInitializer;
+import nikoladasm.aspark.server.ServerOptions;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
 
@@ -214,6 +250,8 @@ public class ASparkUnitTest {
 		InternalLoggerFactory.setDefaultFactory(new Slf4JLoggerFactory());
 		ipAddress(IP_ADDRESS);
 		port(PORT);
+		bulkhead("reports", 1, 16);
+		bulkheadPath("/reports", "reports");
 	}
 	
 	private static void setupStaticFiles() throws IOException {
@@ -225,6 +263,9 @@ public class ASparkUnitTest {
 		new File(System.getProperty("java.io.tmpdir")+"/pages").mkdir();
 		Files.copy(Paths.get("resources/pages/index.html"), Paths.get(System.getProperty("java.io.tmpdir")+"/pages"), REPLACE_EXISTING);
 		staticFileLocation("/resources/public");
+		staticFileLocationCachePolicy("*.js", CachePolicy.IMMUTABLE);
+		staticFileLocationACL("*.bak", false);
+		staticFileLocationACL("*", true);
 		externalStaticFileLocation(System.getProperty("java.io.tmpdir"));
 	}
 	
@@ -379,6 +420,1019 @@ public class ASparkUnitTest {
 		port(2222);
 	}
 	
+	@Test
+	public void shouldBeProcessNonBlockingGetRequestOnEventLoop() {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+4);
+		instance.beforeNonBlocking("/nonblockinggetrequest", (request, response) -> {
+			response.header("FOZ", "BAZ");
+		});
+		instance.getNonBlocking("/nonblockinggetrequest", (request, response) -> {
+			return Thread.currentThread().getName();
+		});
+		instance.afterNonBlocking("/nonblockinggetrequest", (request, response) -> {
+			response.header("FOO", "BAR");
+		});
+		instance.awaitInitialization();
+		try {
+			assertThat(C.get("http://"+IP_ADDRESS+":"+(PORT+4)+"/nonblockinggetrequest", clResTr),
+				containsString("EventLoopGroup"));
+			assertThat(clientResponse.header("FOZ"), is("BAZ"));
+			assertThat(clientResponse.header("FOO"), is("BAR"));
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeProcessNonBlockingGetRequestWithBlockingFilterInPool() {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+4);
+		instance.before("/nonblockingfilteredrequest", (request, response) -> {});
+		instance.getNonBlocking("/nonblockingfilteredrequest", (request, response) -> {
+			return Thread.currentThread().getName();
+		});
+		instance.awaitInitialization();
+		try {
+			assertThat(C.get("http://"+IP_ADDRESS+":"+(PORT+4)+"/nonblockingfilteredrequest"),
+				not(containsString("EventLoopGroup")));
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeRejectedWhenRequestQueueIsFull() throws InterruptedException {
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		RequestExecutor executor = new RequestExecutor(pool, 1, 2);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {}
+			});
+			started.await();
+			executor.execute(() -> {});
+			try {
+				executor.execute(() -> {});
+				fail("Request should be rejected");
+			} catch (RejectedExecutionException e) {}
+			assertThat(executor.queueDepth(), is(equalTo(1)));
+			assertThat(executor.shedRequests(), is(equalTo(1L)));
+			assertThat(shedRequests(), is(equalTo(0L)));
+		} finally {
+			release.countDown();
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldBeRejectionCallbackCalledWhenQueuedRequestIsRejected() {
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		pool.shutdown();
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+		RequestExecutor executor = new RequestExecutor(pool, 0, 2, limiter);
+		AtomicInteger rejected = new AtomicInteger();
+		executor.execute(() -> fail("Task should be rejected"), rejected::incrementAndGet);
+		assertThat(rejected.get(), is(equalTo(1)));
+		assertThat(executor.shedRequests(), is(equalTo(1L)));
+		assertThat(executor.queueDepth(), is(equalTo(0)));
+		assertThat(limiter.inFlight(), is(equalTo(0)));
+	}
+	
+	@Test
+	public void shouldBeRequestsOverConcurrencyLimitQueuedThenRun() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+6);
+		instance.adaptiveConcurrency(1, 1, 1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		instance.get("/limited", (request, response) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.sleep(200);
+			running.decrementAndGet();
+			return "limited";
+		});
+		instance.awaitInitialization();
+		ExecutorService clients = Executors.newFixedThreadPool(3);
+		try {
+			List<CompletableFuture<String>> responses = new ArrayList<>();
+			for (int i=0; i<3; i++)
+				responses.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						Request request = new Request.Builder()
+							.url("http://"+IP_ADDRESS+":"+(PORT+6)+"/limited")
+							.build();
+						com.squareup.okhttp.Response response = new OkHttpClient().newCall(request).execute();
+						return response.code()+" "+response.body().string();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, clients));
+			for (CompletableFuture<String> response : responses)
+				assertThat(response.get(5, TimeUnit.SECONDS), is(equalTo("200 limited")));
+			assertThat(maxRunning.get(), is(equalTo(1)));
+			assertThat(instance.shedRequests(), is(equalTo(0L)));
+		} finally {
+			clients.shutdown();
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeAsyncRequestsOverConcurrencyLimitQueuedUntilCompleted() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+6);
+		instance.adaptiveConcurrency(1, 1, 1);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		instance.get("/asynclimited", (request, response) -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				return "limited";
+			});
+		});
+		instance.awaitInitialization();
+		ExecutorService clients = Executors.newFixedThreadPool(3);
+		try {
+			List<CompletableFuture<String>> responses = new ArrayList<>();
+			for (int i=0; i<3; i++)
+				responses.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						Request request = new Request.Builder()
+							.url("http://"+IP_ADDRESS+":"+(PORT+6)+"/asynclimited")
+							.build();
+						com.squareup.okhttp.Response response = new OkHttpClient().newCall(request).execute();
+						return response.code()+" "+response.body().string();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}, clients));
+			for (CompletableFuture<String> response : responses)
+				assertThat(response.get(5, TimeUnit.SECONDS), is(equalTo("200 limited")));
+			assertThat(maxRunning.get(), is(equalTo(1)));
+			assertThat(instance.shedRequests(), is(equalTo(0L)));
+		} finally {
+			clients.shutdown();
+			instance.stop();
+		}
+	}
+	
+	private static void assertRequestShedWhenQueueIsFull(ExecutionMode mode) throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+8);
+		instance.executionMode(mode);
+		instance.threadPool(1);
+		instance.requestQueue(1, 3);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		instance.get("/busy", (request, response) -> {
+			started.countDown();
+			release.await();
+			return "busy";
+		});
+		instance.awaitInitialization();
+		String request = "GET /busy HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+		try (Socket running = new Socket(IP_ADDRESS, PORT+8);
+				Socket queued = new Socket(IP_ADDRESS, PORT+8)) {
+			running.setSoTimeout(5000);
+			queued.setSoTimeout(5000);
+			running.getOutputStream().write(request.getBytes(UTF_8));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			queued.getOutputStream().write(request.getBytes(UTF_8));
+			for (int i=0; i<50 && instance.requestQueueDepth() < 1; i++)
+				Thread.sleep(100);
+			assertThat(instance.requestQueueDepth(), is(equalTo(1)));
+			Request shedRequest = new Request.Builder()
+				.url("http://"+IP_ADDRESS+":"+(PORT+8)+"/busy")
+				.build();
+			com.squareup.okhttp.Response response = new OkHttpClient().newCall(shedRequest).execute();
+			assertThat(response.code(), is(equalTo(503)));
+			assertThat(response.header("Retry-After"), is(equalTo("3")));
+			assertThat(instance.shedRequests(), is(equalTo(1L)));
+			release.countDown();
+			for (Socket socket : new Socket[] {running, queued}) {
+				byte[] buffer = new byte[4096];
+				StringBuilder sb = new StringBuilder();
+				int read;
+				while ((read = socket.getInputStream().read(buffer)) >= 0)
+					sb.append(new String(buffer, 0, read, UTF_8));
+				assertThat(sb.toString(), startsWith("HTTP/1.1 200"));
+				assertThat(sb.toString(), endsWith("busy"));
+			}
+		} finally {
+			release.countDown();
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeServiceUnavailableWhenRequestQueueIsFull() throws Exception {
+		assertRequestShedWhenQueueIsFull(ExecutionMode.PLATFORM_THREADS);
+	}
+	
+	@Test
+	public void shouldBeRequestQueueBoundedWithVirtualThreads() throws Exception {
+		assertRequestShedWhenQueueIsFull(ExecutionMode.VIRTUAL_THREADS);
+	}
+	
+	private static boolean isVirtual(Thread thread) {
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+	
+	@Test
+	public void shouldBeHandlerRunOnVirtualThreadOrNamedPlatformPool() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+10);
+		instance.executionMode(ExecutionMode.VIRTUAL_THREADS);
+		instance.get("/thread", (request, response) -> {
+			Thread thread = Thread.currentThread();
+			return (isVirtual(thread)) ? "virtual" : thread.getName();
+		});
+		instance.awaitInitialization();
+		try {
+			Request request = new Request.Builder()
+				.url("http://"+IP_ADDRESS+":"+(PORT+10)+"/thread")
+				.build();
+			String thread = new OkHttpClient().newCall(request).execute().body().string();
+			boolean supported = true;
+			try {
+				Thread.class.getMethod("isVirtual");
+			} catch (NoSuchMethodException e) {
+				supported = false;
+			}
+			if (supported)
+				assertThat(thread, is(equalTo("virtual")));
+			else
+				assertThat(thread, startsWith(HandlerExecutors.DEFAULT_POOL_NAME));
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeAdaptiveConcurrencyLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		limiter.release();
+		limiter.release();
+		for (int i=0; i<50; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(1), limiter.limit());
+		}
+		int grownLimit = limiter.limit();
+		assertThat(grownLimit, is(equalTo(10)));
+		for (int i=0; i<50; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(100), limiter.limit());
+		}
+		assertTrue(limiter.limit() < grownLimit);
+		assertThat(limiter.inFlight(), is(equalTo(0)));
+	}
+	
+	@Test
+	public void shouldBeProcessRequestInBulkhead() {
+		get("/reports/daily", (request, response) -> {
+			return Thread.currentThread().getName();
+		});
+		get("/reportsummary", (request, response) -> {
+			return Thread.currentThread().getName();
+		});
+		
+		assertThat(C.get(PATH+"/reports/daily"), startsWith("bulkhead-reports"));
+		assertThat(C.get(PATH+"/reportsummary"), not(startsWith("bulkhead-reports")));
+		assertThat(shedRequests("reports"), is(equalTo(0L)));
+	}
+	
+	@Test
+	public void shouldBePipelinedResponsesInRequestOrder() throws Exception {
+		get("/pipelined/slow", (request, response) -> {
+			Thread.sleep(300);
+			return "slow response";
+		});
+		getNonBlocking("/pipelined/fast", (request, response) -> {
+			return "fast response";
+		});
+		
+		try (Socket socket = new Socket(IP_ADDRESS, PORT)) {
+			socket.setSoTimeout(5000);
+			String requests =
+				"GET /pipelined/slow HTTP/1.1\r\nHost: localhost\r\n\r\n"+
+				"GET /pipelined/fast HTTP/1.1\r\nHost: localhost\r\n\r\n";
+			socket.getOutputStream().write(requests.getBytes(UTF_8));
+			socket.getOutputStream().flush();
+			StringBuilder sb = new StringBuilder();
+			byte[] buffer = new byte[4096];
+			while (sb.indexOf("fast response") < 0 || sb.indexOf("slow response") < 0) {
+				int read = socket.getInputStream().read(buffer);
+				if (read < 0) break;
+				sb.append(new String(buffer, 0, read, UTF_8));
+			}
+			assertTrue(sb.indexOf("slow response") >= 0);
+			assertTrue(sb.indexOf("slow response") < sb.indexOf("fast response"));
+		}
+	}
+	
+	@Test
+	public void shouldBeStreamedResponsePacedBehindPipelinedResponse() throws Exception {
+		AtomicLong slowReturned = new AtomicLong();
+		AtomicLong streamWritten = new AtomicLong();
+		get("/pipelined/slowfirst", (request, response) -> {
+			Thread.sleep(500);
+			slowReturned.set(System.nanoTime());
+			return "slow response";
+		});
+		get("/pipelined/streamed", (request, response) -> {
+			OutputStream out = response.outputStream();
+			byte[] chunk = new byte[8192];
+			for (int i=0; i<128; i++)
+				out.write(chunk);
+			streamWritten.set(System.nanoTime());
+			out.close();
+			return null;
+		});
+		
+		try (Socket socket = new Socket(IP_ADDRESS, PORT)) {
+			socket.setSoTimeout(5000);
+			String requests =
+				"GET /pipelined/slowfirst HTTP/1.1\r\nHost: localhost\r\n\r\n"+
+				"GET /pipelined/streamed HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+			socket.getOutputStream().write(requests.getBytes(UTF_8));
+			long total = 0;
+			byte[] buffer = new byte[65536];
+			int read;
+			while ((read = socket.getInputStream().read(buffer)) >= 0)
+				total += read;
+			assertTrue(total > 128 * 8192);
+			assertTrue(streamWritten.get() - slowReturned.get() > 0);
+		}
+	}
+	
+	private static ChannelPipeline initializedPipeline(ServerOptions options) throws Exception {
+		ServerInitializer initializer = new ServerInitializer(null,
+			1024,
+			IP_ADDRESS,
+			PORT,
+			null,
+			null,
+			null,
+			null,
+			new CompressionPolicy(),
+			null,
+			options,
+			new DefaultChannelGroup(GlobalEventExecutor.INSTANCE));
+		NioSocketChannel channel = new NioSocketChannel();
+		initializer.initChannel(channel);
+		return channel.pipeline();
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldBeExceptionForNegativeWorkerThreads() {
+		new ServerOptions().workerThreads(-1);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldBeExceptionForNonPositiveBacklog() {
+		new ServerOptions().backlog(0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldBeExceptionForHighWaterMarkBelowLow() {
+		new ServerOptions().writeBufferWaterMark(64 * 1024, 32 * 1024);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldBeExceptionForNegativeIdleTimeout() {
+		new ServerOptions().idleTimeouts(0, -1, 0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldBeExceptionForNonPositiveSlowReaderTimeout() {
+		new ServerOptions().maxPendingWriteBytes(1024, 0);
+	}
+	
+	private static ChannelConfig childConfig(ServerOptions options) throws Exception {
+		NioEventLoopGroup group = new NioEventLoopGroup(1);
+		CompletableFuture<ChannelConfig> config = new CompletableFuture<>();
+		try {
+			ServerBootstrap bootstrap = new ServerBootstrap()
+				.group(group)
+				.channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel channel) {
+						config.complete(channel.config());
+					}
+				});
+			options.configure(bootstrap);
+			InetSocketAddress address =
+				(InetSocketAddress) bootstrap.bind(IP_ADDRESS, 0).sync().channel().localAddress();
+			Socket socket = new Socket(address.getAddress(), address.getPort());
+			try {
+				return config.get(5, TimeUnit.SECONDS);
+			} finally {
+				socket.close();
+			}
+		} finally {
+			group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+		}
+	}
+	
+	@Test
+	public void shouldBeServerOptionsAppliedToChildChannel() throws Exception {
+		ServerOptions options = new ServerOptions();
+		options.writeBufferWaterMark(8 * 1024, 16 * 1024);
+		options.allocator(false, false);
+		ChannelConfig config = childConfig(options);
+		assertThat(config.getWriteBufferLowWaterMark(), is(equalTo(8 * 1024)));
+		assertThat(config.getWriteBufferHighWaterMark(), is(equalTo(16 * 1024)));
+		assertThat(config.getAllocator(), is(sameInstance(options.allocator())));
+		
+		options = new ServerOptions();
+		options.writeBufferWaterMark(128 * 1024, 256 * 1024);
+		config = childConfig(options);
+		assertThat(config.getWriteBufferLowWaterMark(), is(equalTo(128 * 1024)));
+		assertThat(config.getWriteBufferHighWaterMark(), is(equalTo(256 * 1024)));
+	}
+	
+	@Test
+	public void shouldBeFlushConsolidationHandlerRemovedWhenDisabled() throws Exception {
+		ServerOptions options = new ServerOptions();
+		ChannelPipeline pipeline = initializedPipeline(options);
+		assertThat(pipeline.get("flushConsolidation"), is(notNullValue()));
+		pipeline.channel().unsafe().closeForcibly();
+		options.flushConsolidation(0, false);
+		pipeline = initializedPipeline(options);
+		assertThat(pipeline.get("flushConsolidation"), is(nullValue()));
+		pipeline.channel().unsafe().closeForcibly();
+	}
+	
+	@Test
+	public void shouldBePipelinedInlineResponsesIntactWithFlushConsolidation() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+7);
+		instance.flushConsolidation(4, false);
+		instance.getNonBlocking("/inline/:id", (request, response) -> "inline "+request.params(":id")+";");
+		instance.awaitInitialization();
+		try (Socket socket = new Socket(IP_ADDRESS, PORT+7)) {
+			socket.setSoTimeout(5000);
+			StringBuilder requests = new StringBuilder();
+			for (int i=0; i<10; i++)
+				requests.append("GET /inline/"+i+" HTTP/1.1\r\nHost: localhost\r\n"+((i == 9) ? "Connection: close\r\n" : "")+"\r\n");
+			socket.getOutputStream().write(requests.toString().getBytes(UTF_8));
+			StringBuilder sb = new StringBuilder();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = socket.getInputStream().read(buffer)) >= 0)
+				sb.append(new String(buffer, 0, read, UTF_8));
+			String responses = sb.toString();
+			assertThat(responses.split("HTTP/1.1 200", -1).length - 1, is(equalTo(10)));
+			int position = -1;
+			for (int i=0; i<10; i++) {
+				int next = responses.indexOf("\r\n\r\ninline "+i+";", position+1);
+				assertTrue(next > position);
+				position = next;
+			}
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeWorkerResponsesDeliveredWithPerTickFlushConsolidation() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+7);
+		instance.flushConsolidation(64, true);
+		instance.get("/worker", (request, response) -> Thread.currentThread().getName());
+		instance.awaitInitialization();
+		try {
+			OkHttpClient client = new OkHttpClient();
+			for (int i=0; i<3; i++) {
+				Request request = new Request.Builder()
+					.url("http://"+IP_ADDRESS+":"+(PORT+7)+"/worker")
+					.build();
+				com.squareup.okhttp.Response response = client.newCall(request).execute();
+				assertThat(response.code(), is(equalTo(200)));
+				assertThat(response.body().string(), not(containsString("EventLoopGroup")));
+			}
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeConnectionLifecycleLimited() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+1);
+		instance.maxRequestsPerConnection(2);
+		instance.idleTimeouts(0, 0, 1);
+		instance.get("/lifecycle", (request, response) -> "lifecycle");
+		instance.awaitInitialization();
+		String request = "GET /lifecycle HTTP/1.1\r\nHost: localhost\r\n\r\n";
+		byte[] buffer = new byte[4096];
+		try {
+			try (Socket socket = new Socket(IP_ADDRESS, PORT+1)) {
+				socket.setSoTimeout(5000);
+				socket.getOutputStream().write(request.getBytes(UTF_8));
+				int read = socket.getInputStream().read(buffer);
+				assertThat(new String(buffer, 0, read, UTF_8), containsString("keep-alive"));
+				socket.getOutputStream().write(request.getBytes(UTF_8));
+				read = socket.getInputStream().read(buffer);
+				assertThat(new String(buffer, 0, read, UTF_8), containsString("close"));
+				assertThat(socket.getInputStream().read(buffer), is(equalTo(-1)));
+			}
+			try (Socket socket = new Socket(IP_ADDRESS, PORT+1)) {
+				socket.setSoTimeout(5000);
+				assertThat(socket.getInputStream().read(buffer), is(equalTo(-1)));
+			}
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeQuietWebSocketNotClosedByIdleTimeouts() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+11);
+		instance.idleTimeouts(1, 0, 1);
+		CountDownLatch received = new CountDownLatch(1);
+		instance.webSocket("/quiet", new WebSocketHandler() {
+			@Override
+			public void onMessage(WebSocketContext wctx, String msg) {
+				if (msg.equals("still here")) received.countDown();
+			}
+		});
+		instance.init();
+		instance.awaitInitialization();
+		CountDownLatch opened = new CountDownLatch(1);
+		CountDownLatch closed = new CountDownLatch(1);
+		WebSocketClient client = new WebSocketClient(URI.create("ws://"+IP_ADDRESS+":"+(PORT+11)+"/quiet"), new Draft_17()) {
+			@Override
+			public void onOpen(ServerHandshake handshake) {
+				opened.countDown();
+			}
+			@Override
+			public void onMessage(String message) {
+			}
+			@Override
+			public void onClose(int code, String reason, boolean remote) {
+				closed.countDown();
+			}
+			@Override
+			public void onError(Exception ex) {
+			}
+		};
+		try {
+			new Thread(client).start();
+			assertTrue(opened.await(5, TimeUnit.SECONDS));
+			assertFalse(closed.await(3, TimeUnit.SECONDS));
+			client.getConnection().send("still here");
+			assertTrue(received.await(5, TimeUnit.SECONDS));
+		} finally {
+			client.close();
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBePipelinedRequestsPastLifecycleLimitIgnored() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+1);
+		instance.maxRequestsPerConnection(2);
+		AtomicInteger handled = new AtomicInteger();
+		instance.get("/lifecycle", (request, response) -> {
+			Thread.sleep(200);
+			return "lifecycle "+handled.incrementAndGet();
+		});
+		instance.awaitInitialization();
+		String request = "GET /lifecycle HTTP/1.1\r\nHost: localhost\r\n\r\n";
+		try (Socket socket = new Socket(IP_ADDRESS, PORT+1)) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream().write((request+request+request+request).getBytes(UTF_8));
+			StringBuilder sb = new StringBuilder();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = socket.getInputStream().read(buffer)) >= 0)
+				sb.append(new String(buffer, 0, read, UTF_8));
+			String responses = sb.toString();
+			assertThat(responses.split("HTTP/1.1 200", -1).length - 1, is(equalTo(2)));
+			assertThat(responses, containsString("lifecycle 2"));
+			assertThat(responses.substring(responses.lastIndexOf("HTTP/1.1 200")), containsString("close"));
+			assertThat(handled.get(), is(equalTo(2)));
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeDrainedOnStop() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+2);
+		instance.drainTimeout(5);
+		CountDownLatch processing = new CountDownLatch(1);
+		instance.get("/drain", (request, response) -> {
+			processing.countDown();
+			Thread.sleep(500);
+			return "drained";
+		});
+		instance.awaitInitialization();
+		try (Socket socket = new Socket(IP_ADDRESS, PORT+2)) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream().write("GET /drain HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(UTF_8));
+			processing.await();
+			instance.stop();
+			StringBuilder sb = new StringBuilder();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = socket.getInputStream().read(buffer)) >= 0)
+				sb.append(new String(buffer, 0, read, UTF_8));
+			assertThat(sb.toString(), startsWith("HTTP/1.1 200"));
+			assertThat(sb.toString(), containsString("Connection: close"));
+			assertThat(sb.toString(), endsWith("drained"));
+		}
+	}
+	
+	private static long readLarge(int port, String path, long pauseMillis) throws Exception {
+		return readLarge(port, path, pauseMillis, 0);
+	}
+	
+	private static long readLarge(int port, String path, long pauseMillis, long readPauseMillis) throws Exception {
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(4096);
+			socket.connect(new InetSocketAddress(IP_ADDRESS, port));
+			socket.setSoTimeout(10000);
+			socket.getOutputStream().write(("GET "+path+" HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(UTF_8));
+			if (pauseMillis > 0)
+				Thread.sleep(pauseMillis);
+			long total = 0;
+			byte[] buffer = new byte[65536];
+			int read;
+			try {
+				while ((read = socket.getInputStream().read(buffer)) >= 0) {
+					total += read;
+					if (readPauseMillis > 0)
+						Thread.sleep(readPauseMillis);
+				}
+			} catch (SocketException e) {
+			}
+			return total;
+		}
+	}
+	
+	@Test
+	public void shouldBeFastReaderNotClosedOverOutboundLimit() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+3);
+		instance.maxPendingWriteBytes(64 * 1024, 1);
+		byte[] body = new byte[4 * 1024 * 1024];
+		instance.get("/large", (request, response) -> body);
+		instance.awaitInitialization();
+		try {
+			assertTrue(readLarge(PORT+3, "/large", 0) > body.length);
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeSlowReaderClosedOverOutboundLimit() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+3);
+		instance.maxPendingWriteBytes(64 * 1024, 1);
+		byte[] body = new byte[32 * 1024 * 1024];
+		instance.get("/large", (request, response) -> body);
+		instance.awaitInitialization();
+		try {
+			assertTrue(readLarge(PORT+3, "/large", 3000) < body.length);
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeSteadyReaderOfLargeFileNotClosedOverOutboundLimit() throws Exception {
+		File folder = new File(System.getProperty("java.io.tmpdir"), "outbound");
+		folder.mkdirs();
+		int length = 4 * 1024 * 1024;
+		Files.write(new File(folder, "large.bin").toPath(), new byte[length]);
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+3);
+		instance.maxPendingWriteBytes(64 * 1024, 1);
+		instance.socketBufferSizes(0, 8192);
+		instance.externalStaticFileLocation(folder.getPath());
+		instance.get("/buffered.bin", (request, response) ->
+			Files.readAllBytes(new File(folder, "large.bin").toPath()));
+		instance.awaitInitialization();
+		try {
+			long start = System.nanoTime();
+			assertTrue(readLarge(PORT+3, "/large.bin", 0, 2) > length);
+			assertTrue(readLarge(PORT+3, "/buffered.bin", 0, 2) > length);
+			assertTrue(System.nanoTime() - start > TimeUnit.SECONDS.toNanos(1));
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeSlowReaderOfStreamedResponseNotClosed() throws Exception {
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+3);
+		instance.maxPendingWriteBytes(64 * 1024, 1);
+		int length = 16 * 1024 * 1024;
+		instance.get("/streamed", (request, response) -> {
+			OutputStream out = response.outputStream();
+			byte[] chunk = new byte[64 * 1024];
+			for (int i = 0; i < length / chunk.length; i++)
+				out.write(chunk);
+			out.close();
+			return null;
+		});
+		instance.awaitInitialization();
+		try {
+			assertTrue(readLarge(PORT+3, "/streamed", 3000) > length);
+		} finally {
+			instance.stop();
+		}
+	}
+	
+	@Test
+	public void shouldBeProcessAsyncGetRequestWhenStageCompletes() {
+		after("/asyncgetrequest", (request, response) -> {
+			response.body(response.body()+" and after filter");
+		});
+		get("/asyncgetrequest", (request, response) -> {
+			return CompletableFuture.supplyAsync(() -> "Async answer");
+		});
+		
+		assertThat(C.get(PATH+"/asyncgetrequest"), is("Async answer and after filter"));
+	}
+	
+	@Test
+	public void shouldBeHandledExceptionFromFailedAsyncStage() {
+		get("/asyncexception", (request, response) -> {
+			return CompletableFuture.supplyAsync(() -> {
+				throw new UnsupportedOperationException();
+			});
+		});
+		
+		assertThat(C.get(PATH+"/asyncexception"), is("Exception handled"));
+	}
+	
+	@Test
+	public void shouldBeStreamedResponseFromWriter() throws Exception {
+		get("/streamingwriter", (request, response) -> {
+			response.type("text/csv");
+			Writer writer = response.writer();
+			for (int i=0; i<20000; i++)
+				writer.write(i+",row"+i+"\n");
+			return null;
+		});
+		
+		Request request = new Request.Builder()
+			.url(PATH+"/streamingwriter")
+			.build();
+		com.squareup.okhttp.Response response = new OkHttpClient().newCall(request).execute();
+		assertThat(response.header("Transfer-Encoding"), is("chunked"));
+		String csv = response.body().string();
+		assertThat(csv, startsWith("0,row0\n1,row1\n"));
+		assertThat(csv, endsWith("19999,row19999\n"));
+		assertThat(csv.split("\n").length, is(20000));
+	}
+	
+	@Test
+	public void shouldBeStreamedResponseFromChunks() throws Exception {
+		get("/streamingchunks", (request, response) -> {
+			response.chunk("first ");
+			response.chunk("second ".getBytes(UTF_8));
+			return "last";
+		});
+		
+		Request request = new Request.Builder()
+			.url(PATH+"/streamingchunks")
+			.build();
+		com.squareup.okhttp.Response response = new OkHttpClient().newCall(request).execute();
+		assertThat(response.body().string(), is("first second last"));
+	}
+	
+	@Test
+	public void shouldBeSerializedIntoByteBufByTransformer() {
+		get("/bytebuftransformer", (request, response) -> {
+			return BODY_CONTENT;
+		}, (ByteBufResponseTransformer) (body, out) -> {
+			out.writeBytes(("<"+body+">").getBytes(UTF_8));
+		});
+		
+		assertThat(C.get(PATH+"/bytebuftransformer"), is("<"+BODY_CONTENT+">"));
+	}
+	
+	@Test
+	public void shouldBeSentFileRegionReturnedByTransformer() throws Exception {
+		byte[] content = new byte[20000];
+		new Random().nextBytes(content);
+		File file = new File(System.getProperty("java.io.tmpdir"), "fileregion.bin");
+		Files.write(file.toPath(), content);
+		AtomicReference<FileRegion> region = new AtomicReference<>();
+		get("/fileregion", (request, response) -> {
+			return file;
+		}, (ResponseTransformer) body -> {
+			region.set(new DefaultFileRegion(new RandomAccessFile((File) body, "r").getChannel(), 0, content.length));
+			return region.get();
+		});
+		
+		com.squareup.okhttp.Response response = getFile("/fileregion");
+		assertThat(response.code(), is(equalTo(200)));
+		assertThat(response.header("Content-Length"), is(equalTo(String.valueOf(content.length))));
+		assertThat(response.body().bytes(), is(equalTo(content)));
+		assertReleased(region.get());
+	}
+	
+	static void assertReleased(FileRegion region) throws InterruptedException {
+		for (int i = 0; i < 100 && region.refCnt() > 0; i++)
+			Thread.sleep(20);
+		assertThat(region.refCnt(), is(equalTo(0)));
+	}
+	
+	@Test
+	public void shouldBeSentDirectByteBufferBody() {
+		get("/directbytebuffer", (request, response) -> {
+			byte[] content = BODY_CONTENT.getBytes(UTF_8);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+			buffer.put(content).flip();
+			return buffer;
+		});
+		
+		assertThat(C.get(PATH+"/directbytebuffer"), is(BODY_CONTENT));
+	}
+	
+	@Test
+	public void shouldBeDefaultHeadersWithCachedDate() throws Exception {
+		get("/defaultheaders", (request, response) -> {
+			response.header("content-type", "application/json");
+			return "{}";
+		});
+		
+		Request request = new Request.Builder()
+			.url(PATH+"/defaultheaders")
+			.build();
+		com.squareup.okhttp.Response response = new OkHttpClient().newCall(request).execute();
+		assertThat(response.headers("Content-Type").size(), is(1));
+		assertThat(response.header("Content-Type"), is("application/json"));
+		assertThat(response.header("Vary"), is("Accept-Encoding"));
+		assertThat(response.header("Server"), is(notNullValue()));
+		long date = ZonedDateTime.parse(response.header("Date"), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+		assertThat(Math.abs(date - System.currentTimeMillis() / 1000) <= 2, is(true));
+	}
+	
+	@Test
+	public void shouldBeCachedResponseForGetRoute() {
+		AtomicInteger counter = new AtomicInteger();
+		get("/cachedroute", (request, response) -> {
+			return "Answer "+counter.incrementAndGet();
+		}, new ResponseCachePolicy(60, 0, false, "id"));
+		
+		assertThat(C.get(PATH+"/cachedroute?id=1"), is("Answer 1"));
+		assertThat(C.get(PATH+"/cachedroute?id=1&other=1"), is("Answer 1"));
+		assertThat(C.get(PATH+"/cachedroute?id=2"), is("Answer 2"));
+		invalidateResponseCache("/cachedroute");
+		assertThat(C.get(PATH+"/cachedroute?id=1"), is("Answer 3"));
+	}
+	
+	@Test
+	public void shouldBeCachedResponseAfterFilters() {
+		AtomicInteger counter = new AtomicInteger();
+		after("/cachedfiltered", (request, response) -> {
+			response.body(response.body()+" +after");
+		});
+		get("/cachedfiltered", (request, response) -> {
+			return "Answer "+counter.incrementAndGet();
+		}, new ResponseCachePolicy(60));
+		
+		assertThat(C.get(PATH+"/cachedfiltered"), is("Answer 1 +after"));
+		assertThat(C.get(PATH+"/cachedfiltered"), is("Answer 1 +after"));
+		assertThat(counter.get(), is(1));
+	}
+	
+	@Test
+	public void shouldBeNotCachedResponseChangedByAfterFilter() {
+		AtomicInteger counter = new AtomicInteger();
+		after("/cachedrejected", (request, response) -> {
+			response.status(202);
+		});
+		get("/cachedrejected", (request, response) -> {
+			return "Answer "+counter.incrementAndGet();
+		}, new ResponseCachePolicy(60));
+		
+		assertThat(C.get(PATH+"/cachedrejected"), is("Answer 1"));
+		assertThat(C.get(PATH+"/cachedrejected"), is("Answer 2"));
+	}
+	
+	@Test
+	public void shouldBeCachedPrecompressedResponse() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		get("/cachedprecompressed", (request, response) -> {
+			counter.incrementAndGet();
+			return CONTENT;
+		}, new ResponseCachePolicy(60, 0, true));
+		
+		C.get(PATH+"/cachedprecompressed");
+		String resSrt = C.get(PATH+"/cachedprecompressed", (request, body) -> {
+			request.header("Accept-Encoding", "gzip");
+			return new byte[0];
+		}, clResTr);
+		assertThat(clientResponse.header("Content-Encoding"), is(equalTo("gzip")));
+		assertThat(resSrt, is(equalTo(CONTENT)));
+		assertThat(counter.get(), is(1));
+	}
+	
+	@Test
+	public void shouldBeStaleResponseWhileRevalidating() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		CountDownLatch revalidating = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		get("/cachedstale", (request, response) -> {
+			int count = counter.incrementAndGet();
+			if (count == 2) {
+				revalidating.countDown();
+				release.await(5, TimeUnit.SECONDS);
+			}
+			return "Answer "+count;
+		}, new ResponseCachePolicy(1, 60));
+		
+		assertThat(cachedBody("/cachedstale"), is("Answer 1"));
+		Thread.sleep(1100);
+		assertThat(cachedBody("/cachedstale"), is("Answer 1"));
+		assertThat(revalidating.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(cachedBody("/cachedstale"), is("Answer 1"));
+		release.countDown();
+		assertThat(awaitCached("/cachedstale", "Answer 2"), is(true));
+		assertThat(counter.get(), is(2));
+	}
+	
+	@Test
+	public void shouldBeRevalidatedAgainAfterFailedRevalidation() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		get("/cachedfailed", (request, response) -> {
+			int count = counter.incrementAndGet();
+			if (count == 2) throw new IllegalStateException("Revalidation failed");
+			if (count == 3) response.status(503);
+			return "Answer "+count;
+		}, new ResponseCachePolicy(1, 60));
+		
+		assertThat(cachedBody("/cachedfailed"), is("Answer 1"));
+		Thread.sleep(1100);
+		for (int expected = 2; expected <= 4; expected++) {
+			assertThat(cachedBody("/cachedfailed"), is("Answer 1"));
+			for (int i = 0; i < 100 && counter.get() < expected; i++)
+				Thread.sleep(20);
+			assertThat(counter.get(), is(expected));
+			Thread.sleep(100);
+		}
+		assertThat(awaitCached("/cachedfailed", "Answer 4"), is(true));
+	}
+	
+	private static String cachedBody(String path) throws IOException {
+		return new OkHttpClient().newCall(new Request.Builder().url(PATH+path).build()).execute().body().string();
+	}
+	
+	private static boolean awaitCached(String path, String expected) throws Exception {
+		for (int i = 0; i < 100; i++) {
+			if (expected.equals(cachedBody(path))) return true;
+			Thread.sleep(50);
+		}
+		return false;
+	}
+	
 	@Test
 	public void shouldBeProcessSimpleGetRequest() {
 		get("/simplegetrequest", (request, response) -> {
@@ -652,6 +1706,33 @@ public class ASparkUnitTest {
 		assertThat(clientResponse.status(), is(equalTo(401)));
 	}
 	
+	@Test
+	public void shouldBeStaticFileDeniedByACL() throws Exception {
+		C.get(PATH+"/css/style.css.bak", clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(404)));
+	}
+	
+	@Test
+	public void shouldBeMatchedExtensionOnlyACL() {
+		List<ACLEntry> entries = new ArrayList<>();
+		entries.add(new ACLEntry("*.bak", false));
+		entries.add(new ACLEntry("*.css", true));
+		entries.add(new ACLEntry("*.css", false));
+		ACLMatcher matcher = new ACLMatcher(entries);
+		String[] paths = {"/css/style.css", "/css/style.css.bak", "/index.html",
+			"/dir.css/file", "/noext", "/style.CSS", "/css/style.css"};
+		for (String path : paths) {
+			Boolean expected = null;
+			for (ACLEntry entry : entries)
+				if ((expected = entry.isAllowed(path)) != null) break;
+			assertThat(path, matcher.isAllowed(path), is(equalTo(expected != null && expected)));
+		}
+		assertThat(matcher.isAllowed("/css/style.css"), is(true));
+		assertThat(matcher.isAllowed("/css/style.css.bak"), is(false));
+		assertThat(matcher.isAllowed("/dir.css/file"), is(false));
+	}
+	
 	@Test
 	public void shouldBeNotFound() throws Exception {
 		C.get(PATH+"/no/resource", clResTr);
@@ -797,6 +1878,42 @@ public class ASparkUnitTest {
 		assertThat(resSrt, is(equalTo(CONTENT)));
 	}
 	
+	@Test
+	public void shouldNotCompressSmallResponse() throws Exception {
+		get("/small", (request, response) -> {
+			return CONTENT;
+		});
+
+		String resSrt = C.get(PATH+"/small", (request, body) -> {
+			request.header("Accept-Encoding", "gzip");
+			return new byte[0];
+		}, clResTr);
+		assertThat(resSrt, is(notNullValue()));
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(200)));
+		assertThat(clientResponse.header("Content-Encoding"), is(nullValue()));
+		assertThat(resSrt, is(equalTo(CONTENT)));
+	}
+
+	@Test
+	public void shouldBeForcedCompression() throws Exception {
+		get("/forcedzip", (request, response) -> {
+			response.compression(true);
+			return CONTENT;
+		});
+
+		String resSrt = C.get(PATH+"/forcedzip", (request, body) -> {
+			request.header("Accept-Encoding", "gzip");
+			return new byte[0];
+		}, clResTr);
+		assertThat(resSrt, is(notNullValue()));
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(200)));
+		assertThat(clientResponse.header("Content-Encoding"), is(equalTo("gzip")));
+		assertThat(clientResponse.header(CompressionPolicy.OVERRIDE_HEADER), is(nullValue()));
+		assertThat(resSrt, is(equalTo(CONTENT)));
+	}
+
 	@Test
 	public void shouldBeStaticFile() throws Exception {
 		String resSrt = C.get(PATH+"/css/style.css", clResTr);
@@ -818,6 +1935,21 @@ public class ASparkUnitTest {
 		assertThat(resSrt, is(equalTo("Content of css file")));
 	}
 	
+	@Test
+	public void shouldBePrecompressedStaticFile() throws Exception {
+		String expected = new String(Files.readAllBytes(Paths.get("resources/public/js/script.js")), UTF_8);
+		String resSrt = C.get(PATH+"/js/script.js", (request, body) -> {
+			request.header("Accept-Encoding", "gzip");
+			return new byte[0];
+		}, clResTr);
+		assertThat(resSrt, is(notNullValue()));
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(200)));
+		assertThat(clientResponse.header("Content-Encoding"), is(equalTo("gzip")));
+		assertThat(clientResponse.header("Vary"), is(equalTo("Accept-Encoding")));
+		assertThat(resSrt, is(equalTo(expected)));
+	}
+	
 	@Test
 	public void shouldBeExternalStaticFile() throws Exception {
 		String resSrt = C.get(PATH+"/externalFile.html", clResTr);
@@ -826,6 +1958,265 @@ public class ASparkUnitTest {
 		assertThat(clientResponse.status(), is(equalTo(200)));
 		assertThat(resSrt, is(equalTo("Content of external file")));
 	}
+
+	@Test
+	public void shouldBeStaticFileNotModifiedByETag() throws Exception {
+		C.get(PATH+"/css/style.css", clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		String etag = clientResponse.header("ETag");
+		assertThat(etag, is(notNullValue()));
+		assertThat(clientResponse.header("Cache-Control"), is(equalTo("private, max-age=60")));
+		C.get(PATH+"/css/style.css", (request, body) -> {
+			request.header("If-None-Match", etag);
+			return new byte[0];
+		}, clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(304)));
+		assertThat(clientResponse.header("ETag"), is(equalTo(etag)));
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileNotModifiedByEncodedETag() throws Exception {
+		com.squareup.okhttp.Response response = getFile("/externalFile.html");
+		assertThat(response.code(), is(equalTo(200)));
+		String etag = response.header("ETag");
+		assertThat(etag, is(notNullValue()));
+		response.body().close();
+		String deflateTag = etag.substring(0, etag.length()-1)+"-deflate\"";
+		response = getFile("/externalFile.html", "If-None-Match", "\"other\", W/"+deflateTag);
+		assertThat(response.code(), is(equalTo(304)));
+		assertThat(response.header("ETag"), is(equalTo(deflateTag)));
+		response.body().close();
+	}
+
+	@Test
+	public void shouldBeStaticFileImmutableCachePolicy() throws Exception {
+		C.get(PATH+"/js/script.js", clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(200)));
+		assertThat(clientResponse.header("Cache-Control"), is(equalTo("public, max-age=31536000, immutable")));
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileNotModifiedSince() throws Exception {
+		C.get(PATH+"/externalFile.html", (request, body) -> {
+			request.header("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+				ZonedDateTime.now(ZoneOffset.UTC).plusHours(1)));
+			return new byte[0];
+		}, clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(304)));
+	}
+
+	private static com.squareup.okhttp.Response getFile(String path, String... headers) throws IOException {
+		Request.Builder builder = new Request.Builder()
+			.url(PATH+path)
+			.header("Accept-Encoding", "identity");
+		for (int i = 0; i < headers.length; i += 2)
+			builder.header(headers[i], headers[i+1]);
+		return new OkHttpClient().newCall(builder.build()).execute();
+	}
+	
+	private static FileMetadata loadMetadata(String fullPath, AtomicInteger loads) {
+		loads.incrementAndGet();
+		File file = new File(fullPath);
+		return new FileMetadata(file.toPath(), file.isFile() ? file : null, "text/plain");
+	}
+	
+	@Test
+	public void shouldBeLeastRecentlyUsedFileMetadataEvicted() throws Exception {
+		File folder = new File(System.getProperty("java.io.tmpdir"), "metadatalru");
+		folder.mkdirs();
+		FileMetadataCache cache = new FileMetadataCache(2);
+		AtomicInteger loads = new AtomicInteger();
+		try {
+			String first = folder.getPath()+"/first.txt";
+			String second = folder.getPath()+"/second.txt";
+			cache.get(first, path -> loadMetadata(path, loads));
+			cache.get(second, path -> loadMetadata(path, loads));
+			cache.get(first, path -> loadMetadata(path, loads));
+			cache.get(folder.getPath()+"/third.txt", path -> loadMetadata(path, loads));
+			assertThat(loads.get(), is(equalTo(3)));
+			cache.get(first, path -> loadMetadata(path, loads));
+			assertThat(loads.get(), is(equalTo(3)));
+			cache.get(second, path -> loadMetadata(path, loads));
+			assertThat(loads.get(), is(equalTo(4)));
+		} finally {
+			cache.close();
+		}
+	}
+	
+	@Test
+	public void shouldBeMissingFileUnderMissingDirectoryCachedUntilCreated() throws Exception {
+		File folder = new File(System.getProperty("java.io.tmpdir"), "metadatamissing");
+		File missing = new File(folder, "missing/dir");
+		deleteRecursively(folder);
+		folder.mkdirs();
+		String fullPath = missing.getPath()+"/file.txt";
+		FileMetadataCache cache = new FileMetadataCache();
+		AtomicInteger loads = new AtomicInteger();
+		try {
+			assertFalse(cache.get(fullPath, path -> loadMetadata(path, loads)).exists());
+			assertFalse(cache.get(fullPath, path -> loadMetadata(path, loads)).exists());
+			assertThat(loads.get(), is(equalTo(1)));
+			missing.mkdirs();
+			writeFile(new File(missing, "file.txt"), "created");
+			boolean exists = false;
+			for (int i = 0; i < 100 && !exists; i++) {
+				Thread.sleep(50);
+				exists = cache.get(fullPath, path -> loadMetadata(path, loads)).exists();
+			}
+			assertTrue(exists);
+		} finally {
+			cache.close();
+			deleteRecursively(folder);
+		}
+	}
+	
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				deleteRecursively(child);
+		file.delete();
+	}
+	
+	@Test
+	public void shouldBeExternalStaticFileRange() throws Exception {
+		com.squareup.okhttp.Response response = getFile("/externalFile.html", "Range", "bytes=11-18");
+		assertThat(response.code(), is(equalTo(206)));
+		assertThat(response.header("Content-Range"), is(equalTo("bytes 11-18/24")));
+		assertThat(response.body().string(), is(equalTo("external")));
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileMultipleRanges() throws Exception {
+		com.squareup.okhttp.Response response = getFile("/externalFile.html", "Range", "bytes=0-6,-4");
+		assertThat(response.code(), is(equalTo(206)));
+		String contentType = response.header("Content-Type");
+		assertThat(contentType, startsWith("multipart/byteranges; boundary="));
+		String boundary = contentType.substring(contentType.indexOf('=')+1);
+		assertThat(response.body().string(), is(equalTo(
+			"\r\n--"+boundary+"\r\n"+
+			"Content-Type: text/html\r\n"+
+			"Content-Range: bytes 0-6/24\r\n\r\n"+
+			"Content"+
+			"\r\n--"+boundary+"\r\n"+
+			"Content-Type: text/html\r\n"+
+			"Content-Range: bytes 20-23/24\r\n\r\n"+
+			"file"+
+			"\r\n--"+boundary+"--\r\n")));
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileRangeNotSatisfiable() throws Exception {
+		C.get(PATH+"/externalFile.html", (request, body) -> {
+			request.header("Range", "bytes=100-");
+			return new byte[0];
+		}, clResTr);
+		assertThat(clientResponse, is(notNullValue()));
+		assertThat(clientResponse.status(), is(equalTo(416)));
+		assertThat(clientResponse.header("Content-Range"), is(equalTo("bytes */24")));
+	}
+
+	@Test
+	public void shouldBeLargeExternalStaticFileRanges() throws Exception {
+		File file = new File(System.getProperty("java.io.tmpdir"), "largeExternalFile.txt");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			sb.append((char) ('a' + i % 26));
+		String content = sb.toString();
+		try {
+			writeFile(file, content);
+			com.squareup.okhttp.Response response = getFile("/largeExternalFile.txt", "Range", "bytes=100-12099");
+			assertThat(response.code(), is(equalTo(206)));
+			assertThat(response.header("Content-Range"), is(equalTo("bytes 100-12099/20000")));
+			assertThat(response.body().string(), is(equalTo(content.substring(100, 12100))));
+			String partType = response.header("Content-Type");
+			
+			response = getFile("/largeExternalFile.txt", "Range", "bytes=0-9999,-9000");
+			assertThat(response.code(), is(equalTo(206)));
+			String contentType = response.header("Content-Type");
+			assertThat(contentType, startsWith("multipart/byteranges; boundary="));
+			String boundary = contentType.substring(contentType.indexOf('=')+1);
+			assertThat(response.body().string(), is(equalTo(
+				"\r\n--"+boundary+"\r\n"+
+				"Content-Type: "+partType+"\r\n"+
+				"Content-Range: bytes 0-9999/20000\r\n\r\n"+
+				content.substring(0, 10000)+
+				"\r\n--"+boundary+"\r\n"+
+				"Content-Type: "+partType+"\r\n"+
+				"Content-Range: bytes 11000-19999/20000\r\n\r\n"+
+				content.substring(11000)+
+				"\r\n--"+boundary+"--\r\n")));
+			
+			response = getFile("/largeExternalFile.txt",
+				"Range", "bytes=100-12099",
+				"If-Range", "\"mismatch\"");
+			assertThat(response.code(), is(equalTo(200)));
+			assertThat(response.header("Content-Range"), is(nullValue()));
+			assertThat(response.body().string(), is(equalTo(content)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileNotMappedWithoutTls() throws Exception {
+		File file = new File(System.getProperty("java.io.tmpdir"), "mappedExternalFile.bin");
+		byte[] content = new byte[64 * 1024];
+		new Random().nextBytes(content);
+		Files.write(file.toPath(), content);
+		ASparkInstance instance = new ASparkInstance();
+		instance.ipAddress(IP_ADDRESS);
+		instance.port(PORT+5);
+		instance.externalStaticFileLocation(System.getProperty("java.io.tmpdir"));
+		instance.externalStaticFileMapping(1024, 1024 * 1024);
+		instance.init();
+		instance.awaitInitialization();
+		try {
+			OkHttpClient client = new OkHttpClient();
+			for (int i=0; i<4; i++) {
+				Request request = new Request.Builder()
+					.url("http://"+IP_ADDRESS+":"+(PORT+5)+"/mappedExternalFile.bin")
+					.build();
+				com.squareup.okhttp.Response response = client.newCall(request).execute();
+				assertThat(response.code(), is(equalTo(200)));
+				assertThat(response.body().bytes(), is(equalTo(content)));
+			}
+			assertThat(instance.externalStaticFileMappedSize(), is(equalTo(0L)));
+		} finally {
+			instance.stop();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void shouldBeExternalStaticFileReloadedAfterChange() throws Exception {
+		File file = new File(System.getProperty("java.io.tmpdir"), "changedExternalFile.html");
+		try {
+			writeFile(file, "Content before change");
+			com.squareup.okhttp.Response response = getFile("/changedExternalFile.html");
+			assertThat(response.code(), is(equalTo(200)));
+			String resSrt = response.body().string();
+			assertThat(resSrt, is(equalTo("Content before change")));
+			writeFile(file, "Content after change");
+			for (int i=0; i<50 && !"Content after change".equals(resSrt); i++) {
+				Thread.sleep(100);
+				resSrt = getFile("/changedExternalFile.html").body().string();
+			}
+			assertThat(resSrt, is(equalTo("Content after change")));
+		} finally {
+			file.delete();
+		}
+	}
+	
+	private static void writeFile(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.flush();
+		writer.close();
+	}
 	
 	@Test
 	public void shouldBeStaticFilePagesIndexHtml() throws Exception {